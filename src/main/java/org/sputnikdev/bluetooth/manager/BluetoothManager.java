@@ -23,7 +23,10 @@ package org.sputnikdev.bluetooth.manager;
 import org.sputnikdev.bluetooth.URL;
 import org.sputnikdev.bluetooth.manager.transport.BluetoothObjectFactory;
 
+import java.time.Duration;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.regex.Pattern;
 
 /**
  * The core of the system. Provides various high level methods for accessing bluetooth object governors
@@ -166,6 +169,18 @@ public interface BluetoothManager {
      */
     CharacteristicGovernor getCharacteristicGovernor(URL url, boolean forceConnect);
 
+    /**
+     * Creates a new device governor or returns an existing one by its URL and enables its connection control
+     * ({@link DeviceGovernor#setConnectionControl(boolean)}). Unlike {@link #getDeviceGovernor(URL, boolean)},
+     * this method never connects the device on the caller thread, instead it returns a future which completes
+     * once the device gets connected and its GATT services get resolved.
+     * @param url a URL of a bluetooth device
+     * @param timeout maximum time to wait for the device to get connected and its services resolved
+     * @return a future of the device governor, completes exceptionally with
+     * {@link java.util.concurrent.TimeoutException} if the device is not acquired within the given timeout
+     */
+    CompletableFuture<DeviceGovernor> acquireDeviceAsync(URL url, Duration timeout);
+
     /**
      * Disposes/ shuts down a governor by its URL.
      * @param url a URL of a bluetooth object (adapter, device, characteristic)
@@ -220,5 +235,30 @@ public interface BluetoothManager {
      */
     void unregisterFactory(BluetoothObjectFactory transport);
 
+    /**
+     * Returns runtime statistics of the bluetooth manager.
+     * @return bluetooth manager statistics
+     */
+    BluetoothManagerStatistics getStatistics();
+
+    /**
+     * Enables caching of values of characteristics with the given UUID (e.g. device name, firmware revision),
+     * so that {@link CharacteristicGovernor#read()} does not go to the bluetooth device until the cached value
+     * expires. Cached values of notifiable characteristics are also invalidated when a notification is received.
+     * All cached values are kept in a bounded LRU cache shared by all characteristics of the manager.
+     * @param characteristicUUID characteristic UUID
+     * @param ttl time to live of cached values, zero duration disables caching
+     */
+    void setValueCachePolicy(String characteristicUUID, Duration ttl);
+
+    /**
+     * Enables caching of values of characteristics which URL (e.g. "/XX:XX:XX:XX:XX:XX/12:34:56:78:90:12/...")
+     * matches the given regular expression. Policies defined by characteristic UUID
+     * ({@link #setValueCachePolicy(String, Duration)}) take precedence over URL patterns.
+     * @param urlPattern regular expression which characteristic URLs are matched against
+     * @param ttl time to live of cached values, zero duration disables caching
+     */
+    void setValueCachePolicy(Pattern urlPattern, Duration ttl);
+
 
 }
@@ -0,0 +1,98 @@
+package org.sputnikdev.bluetooth.manager;
+
+/*-
+ * #%L
+ * org.sputnikdev:bluetooth-manager
+ * %%
+ * Copyright (C) 2017 Sputnik Dev
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.sputnikdev.bluetooth.URL;
+
+import java.util.Map;
+
+/**
+ * Runtime statistics of a bluetooth manager. All values are live and cumulative since the manager was created.
+ *
+ * @author Vlad Kolotov
+ */
+public interface BluetoothManagerStatistics {
+
+    /**
+     * Returns how many periodic governor updates have been executed.
+     * @return number of executed periodic updates
+     */
+    long getExecutedUpdates();
+
+    /**
+     * Returns how many periodic governor updates have been skipped because the corresponding bluetooth objects
+     * were proven to be alive by recent activity, e.g. notifications received from the transport.
+     * @return number of skipped periodic updates
+     */
+    long getSkippedUpdates();
+
+    /**
+     * Returns how many update requests (e.g. caused by changing governor controls) have been merged into
+     * an already pending update of the same governor.
+     * @return number of coalesced update requests
+     */
+    long getCoalescedUpdates();
+
+    /**
+     * Returns statistics of command lanes. Each bluetooth adapter has its own command lane
+     * which executes governor updates one by one.
+     * @return command lanes statistics by adapter URL
+     */
+    Map<URL, CommandLaneStatistics> getCommandLanes();
+
+    /**
+     * Returns how many characteristic reads have been served from the value cache.
+     * @return number of value cache hits
+     */
+    long getValueCacheHits();
+
+    /**
+     * Returns how many reads of cacheable characteristics have not found a valid value in the value cache.
+     * @return number of value cache misses
+     */
+    long getValueCacheMisses();
+
+    /**
+     * Returns number of characteristic values currently kept in the value cache.
+     * @return value cache size
+     */
+    int getValueCacheSize();
+
+    /**
+     * Returns statistics of registered characteristic governors.
+     * @return characteristic statistics by characteristic URL
+     */
+    Map<URL, CharacteristicStatistics> getCharacteristics();
+
+    /**
+     * Returns how many RSSI readings have been overwritten in device RSSI buffers before they were processed,
+     * i.e. dropped because RSSI ingestion could not keep up with incoming readings.
+     * @return number of dropped RSSI readings
+     */
+    long getRssiOverflows();
+
+    /**
+     * Returns number of devices which have unprocessed RSSI readings waiting for an RSSI ingestion worker.
+     * @return RSSI ingestion backlog, 0 if RSSI readings are processed synchronously
+     */
+    int getRssiBacklog();
+
+}
@@ -0,0 +1,41 @@
+package org.sputnikdev.bluetooth.manager;
+
+/*-
+ * #%L
+ * org.sputnikdev:bluetooth-manager
+ * %%
+ * Copyright (C) 2017 Sputnik Dev
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.nio.ByteBuffer;
+
+/**
+ * A buffer based value change listener. Unlike {@link ValueListener}, it receives characteristic values
+ * without copying them into new arrays, which suits high rate notifications.
+ *
+ * @author Vlad Kolotov
+ */
+public interface BufferValueListener {
+
+    /**
+     * Reports value changed event. The value is a read-only view (from its position to its limit) which is valid
+     * only for the duration of the call, the underlying memory can be reused for subsequent values
+     * after this method returns, therefore the value must be copied if it is needed later.
+     * @param value a new state
+     */
+    void changed(ByteBuffer value);
+
+}
@@ -22,7 +22,9 @@ package org.sputnikdev.bluetooth.manager;
 
 import org.sputnikdev.bluetooth.manager.transport.CharacteristicAccessType;
 
+import java.nio.ByteBuffer;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Bluetooth characteristic governor ({@link BluetoothGovernor}).
@@ -79,6 +81,19 @@ public interface CharacteristicGovernor extends BluetoothGovernor {
      */
     byte[] read() throws NotReadyException;
 
+    /**
+     * Reads state from the characteristic into the given buffer starting at its current position,
+     * the position is advanced by the number of bytes read. Unlike {@link #read()}, the value is not copied into
+     * a new array if the transport supports buffer based reads. It is not an overload of {@link #read()},
+     * so that method references to {@link #read()} stay unambiguous.
+     *
+     * @param destination a buffer to read the characteristic state into
+     * @return number of bytes read
+     * @throws NotReadyException if the bluetooth object is not ready
+     * @throws java.nio.BufferOverflowException if there is not enough space remaining in the buffer
+     */
+    int readInto(ByteBuffer destination) throws NotReadyException;
+
     /**
      * Writes state to the characteristic.
      * @param data a new characteristic state
@@ -87,6 +102,34 @@ public interface CharacteristicGovernor extends BluetoothGovernor {
      */
     boolean write(byte[] data) throws NotReadyException;
 
+    /**
+     * Returns a future which completes once the characteristic becomes ready,
+     * i.e. its device is connected and services are resolved. Unlike the blocking methods, this method never
+     * performs an update on the caller thread. The future completes exceptionally with
+     * a {@link java.util.concurrent.TimeoutException} if the characteristic does not become ready within
+     * the readiness timeout of the bluetooth manager.
+     *
+     * @return a future which completes when the characteristic is ready
+     */
+    CompletableFuture<Void> whenReady();
+
+    /**
+     * Reads state from the characteristic asynchronously. The read is performed by the bluetooth manager
+     * once the characteristic becomes ready (see {@link #whenReady()}).
+     *
+     * @return a future of characteristic state
+     */
+    CompletableFuture<byte[]> readAsync();
+
+    /**
+     * Writes state to the characteristic asynchronously. The write is performed by the bluetooth manager
+     * once the characteristic becomes ready (see {@link #whenReady()}).
+     *
+     * @param data a new characteristic state
+     * @return a future which completes with true if the new state is written
+     */
+    CompletableFuture<Boolean> writeAsync(byte[] data);
+
     /**
      * Register a new characteristic listener.
      * @param valueListener new characteristic listener
@@ -99,4 +142,16 @@ public interface CharacteristicGovernor extends BluetoothGovernor {
      */
     void removeValueListener(ValueListener valueListener);
 
+    /**
+     * Register a new buffer based characteristic listener, see {@link BufferValueListener}.
+     * @param valueListener new characteristic listener
+     */
+    void addBufferValueListener(BufferValueListener valueListener);
+
+    /**
+     * Removes a previously registered buffer based characteristic listener.
+     * @param valueListener a previously registered characteristic listener
+     */
+    void removeBufferValueListener(BufferValueListener valueListener);
+
 }
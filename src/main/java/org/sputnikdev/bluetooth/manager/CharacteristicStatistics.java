@@ -0,0 +1,64 @@
+package org.sputnikdev.bluetooth.manager;
+
+/*-
+ * #%L
+ * org.sputnikdev:bluetooth-manager
+ * %%
+ * Copyright (C) 2017 Sputnik Dev
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.sputnikdev.bluetooth.URL;
+
+/**
+ * Runtime statistics of a characteristic governor.
+ *
+ * @author Vlad Kolotov
+ */
+public interface CharacteristicStatistics {
+
+    /**
+     * Returns URL of the characteristic.
+     * @return characteristic URL
+     */
+    URL getURL();
+
+    /**
+     * Returns number of native reads performed for the characteristic.
+     * @return number of native reads
+     */
+    long getNativeReads();
+
+    /**
+     * Returns number of reads which did not hit the native layer because they joined a read
+     * that was already in progress for the same characteristic.
+     * @return number of coalesced reads
+     */
+    long getCoalescedReads();
+
+    /**
+     * Returns number of reads served from the value cache.
+     * @return number of value cache hits
+     */
+    long getCacheHits();
+
+    /**
+     * Returns number of reads which have not found a valid value in the value cache
+     * (only characteristics with a caching policy are counted).
+     * @return number of value cache misses
+     */
+    long getCacheMisses();
+
+}
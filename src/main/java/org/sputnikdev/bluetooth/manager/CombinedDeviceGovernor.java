@@ -32,6 +32,25 @@ public interface CombinedDeviceGovernor extends CombinedGovernor {
      */
     URL getPreferredAdapter();
 
+    /**
+     * Sets the hysteresis of the nearest adapter detection. The nearest adapter gets replaced with another adapter
+     * only if the other adapter is closer to the device by the given ratio of the current distance,
+     * e.g. 0.1 means that the other adapter must be at least 10% closer.
+     * Implementations which do not support the hysteresis throw an {@link IllegalStateException}.
+     * @param hysteresis a ratio between 0 (inclusive) and 1 (exclusive)
+     */
+    default void setNearestAdapterHysteresis(double hysteresis) {
+        throw new IllegalStateException("Nearest adapter hysteresis is not supported");
+    }
+
+    /**
+     * Returns the hysteresis of the nearest adapter detection, 0 if the hysteresis is not supported.
+     * @return the hysteresis ratio
+     */
+    default double getNearestAdapterHysteresis() {
+        return 0;
+    }
+
     /**
      * Returns the URL of an adapter the device is connected to. If the device is not connected, then the result is null.
      * @return URL of an adapter the device is connected to
@@ -0,0 +1,69 @@
+package org.sputnikdev.bluetooth.manager;
+
+/*-
+ * #%L
+ * org.sputnikdev:bluetooth-manager
+ * %%
+ * Copyright (C) 2017 Sputnik Dev
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.sputnikdev.bluetooth.URL;
+
+/**
+ * Runtime statistics of a command lane. Native calls that target the same bluetooth adapter are executed
+ * one by one in a FIFO order (a command lane), whereas different adapters are served in parallel.
+ *
+ * @author Vlad Kolotov
+ */
+public interface CommandLaneStatistics {
+
+    /**
+     * Returns URL of the adapter which is served by the command lane.
+     * @return adapter URL
+     */
+    URL getURL();
+
+    /**
+     * Returns number of commands currently waiting in the lane.
+     * @return current queue depth
+     */
+    int getQueueDepth();
+
+    /**
+     * Returns the largest number of commands that were waiting in the lane at the same time.
+     * @return max queue depth
+     */
+    int getMaxQueueDepth();
+
+    /**
+     * Returns number of commands executed by the lane.
+     * @return number of executed commands
+     */
+    long getExecutedCommands();
+
+    /**
+     * Returns average time (in milliseconds) commands were waiting in the lane before execution.
+     * @return average wait time in milliseconds
+     */
+    double getAverageWaitTime();
+
+    /**
+     * Returns max time (in milliseconds) a command was waiting in the lane before execution.
+     * @return max wait time in milliseconds
+     */
+    long getMaxWaitTime();
+
+}
@@ -31,6 +31,7 @@ import org.sputnikdev.bluetooth.manager.transport.BluetoothObject;
 import java.util.Date;
 import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.locks.ReentrantLock;
 import java.util.function.Consumer;
@@ -81,16 +82,24 @@ import java.util.function.Function;
  */
 abstract class AbstractBluetoothObjectGovernor<T extends BluetoothObject> implements BluetoothObjectGovernor {
 
+    // max number of consecutive periodic updates that can be deferred due to recent activity
+    static final int MAX_DEFERRED_UPDATES = 9;
+
     private Logger logger = LoggerFactory.getLogger(AbstractBluetoothObjectGovernor.class);
 
     protected final BluetoothManagerImpl bluetoothManager;
     protected final URL url;
     private T bluetoothObject;
     private String transport;
-    private Date lastActivity;
-    private Date lastActivityNotified;
+    // epoch millis, 0 if there has been no activity yet. Dates are created only when requested through the API
+    private volatile long lastActivity;
+    private long lastActivityNotified;
     private final List<GovernorListener> governorListeners = new CopyOnWriteArrayList<>();
+    private final List<CompletableFuture<Void>> readinessFutures = new CopyOnWriteArrayList<>();
     private GovernorState state = GovernorState.NEW;
+    private volatile boolean updateRequested = true;
+    private volatile long lastUpdated;
+    private int deferredUpdates;
 
     private final ReentrantLock updateLock = new ReentrantLock();
 
@@ -121,6 +130,11 @@ abstract class AbstractBluetoothObjectGovernor<T extends BluetoothObject> implem
 
     @Override
     public Date getLastActivity() {
+        long lastActivity = this.lastActivity;
+        return lastActivity != 0 ? new Date(lastActivity) : null;
+    }
+
+    long getLastActivityMillis() {
         return lastActivity;
     }
 
@@ -166,8 +180,11 @@ abstract class AbstractBluetoothObjectGovernor<T extends BluetoothObject> implem
                     }
                     logger.trace("Performing update with the native object: {} / {}",
                             url, Integer.toHexString(object.hashCode()));
+                    updateRequested = false;
                     update(object);
                     logger.debug("Governor has been updated: {}", url);
+                    lastUpdated = System.currentTimeMillis();
+                    deferredUpdates = 0;
                     updated = true;
                 } catch (Exception ex) {
                     logger.warn("Error occurred while updating governor: {} / {} : {}",
@@ -214,6 +231,8 @@ abstract class AbstractBluetoothObjectGovernor<T extends BluetoothObject> implem
             reset();
             state = GovernorState.DISPOSED;
             governorListeners.clear();
+            readinessFutures.forEach(future -> future.completeExceptionally(
+                    new NotReadyException("Governor has been disposed: " + url)));
         }
     }
 
@@ -221,6 +240,72 @@ abstract class AbstractBluetoothObjectGovernor<T extends BluetoothObject> implem
         bluetoothManager.scheduleUpdate(this);
     }
 
+    /**
+     * Returns a future which completes once the governor becomes ready (its native object gets acquired).
+     * If the governor is not ready yet, an update is scheduled so that the caller thread is never blocked.
+     * The future completes exceptionally if the governor gets disposed or it does not become ready within
+     * the readiness timeout of the bluetooth manager.
+     * @return a future which completes when the governor is ready
+     */
+    public CompletableFuture<Void> whenReady() {
+        if (state == GovernorState.DISPOSED) {
+            CompletableFuture<Void> disposed = new CompletableFuture<>();
+            disposed.completeExceptionally(new NotReadyException("Governor has been disposed: " + url));
+            return disposed;
+        }
+        if (isReady()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        readinessFutures.add(future);
+        future.whenComplete((result, error) -> readinessFutures.remove(future));
+        // the governor might have become ready in the meantime
+        if (isReady()) {
+            future.complete(null);
+        } else {
+            bluetoothManager.scheduleReadinessTimeout(future, url);
+            scheduleUpdate();
+        }
+        return future;
+    }
+
+    /**
+     * Marks the governor as requiring a full update on the next refresh cycle, e.g. when its controls change.
+     */
+    protected void requestUpdate() {
+        updateRequested = true;
+    }
+
+    /**
+     * Checks whether a periodic update can be deferred. An update is deferred only if the governor is ready,
+     * no update has been requested (see {@link #requestUpdate()}), the governor is steady (see {@link #isSteady()})
+     * and the bluetooth object has been proven to be alive by some activity (e.g. notifications)
+     * that happened after the last update and within the given period. No more than
+     * {@link #MAX_DEFERRED_UPDATES} consecutive updates can be deferred.
+     * @param period refresh period in milliseconds
+     * @return true if the periodic update can be skipped
+     */
+    boolean deferUpdate(long period) {
+        long lastActivity = this.lastActivity;
+        if (!isReady() || updateRequested || lastActivity == 0 || deferredUpdates >= MAX_DEFERRED_UPDATES
+                || lastActivity <= lastUpdated
+                || System.currentTimeMillis() - lastActivity > period || !isSteady()) {
+            return false;
+        }
+        deferredUpdates++;
+        return true;
+    }
+
+    /**
+     * Checks whether the governor state is in line with its controls so that skipping an update
+     * would not leave any pending changes behind. Subclasses should override this method if they need to track
+     * some state transitions in the {@link #update(BluetoothObject)} method.
+     * @return true if the governor state is in line with its controls
+     */
+    boolean isSteady() {
+        return true;
+    }
+
     protected <R> R interact(String name, Function<T, R> delegate) {
         try {
             T object = getBluetoothObject();
@@ -273,20 +358,24 @@ abstract class AbstractBluetoothObjectGovernor<T extends BluetoothObject> implem
     abstract void reset(T object);
 
     void updateLastChanged() {
-        lastActivity = new Date();
+        lastActivity = System.currentTimeMillis();
     }
 
     void notifyReady(boolean ready) {
         BluetoothManagerUtils.safeForEachError(governorListeners, listener -> listener.ready(ready), logger,
                 "Execution error of a governor listener: ready");
         bluetoothManager.notifyGovernorReady(this, ready);
+        if (ready) {
+            readinessFutures.forEach(future -> future.complete(null));
+        }
     }
 
     void notifyLastChanged() {
-        Date lastChanged = lastActivity;
-        if (lastChanged != null && !lastChanged.equals(lastActivityNotified)) {
+        long lastChanged = lastActivity;
+        if (lastChanged != 0 && lastChanged != lastActivityNotified) {
+            Date lastChangedDate = new Date(lastChanged);
             BluetoothManagerUtils.safeForEachError(governorListeners, listener -> listener
-                            .lastUpdatedChanged(lastChanged), logger,
+                            .lastUpdatedChanged(lastChangedDate), logger,
                     "Execution error of a governor listener: last changed");
             lastActivityNotified = lastChanged;
         }
@@ -30,7 +30,7 @@ import org.sputnikdev.bluetooth.manager.BluetoothObjectVisitor;
 import org.sputnikdev.bluetooth.manager.DeviceGovernor;
 import org.sputnikdev.bluetooth.manager.NotReadyException;
 import org.sputnikdev.bluetooth.manager.transport.Adapter;
-import org.sputnikdev.bluetooth.manager.transport.Notification;
+import org.sputnikdev.bluetooth.manager.transport.BooleanNotification;
 
 import java.util.List;
 import java.util.concurrent.CopyOnWriteArrayList;
@@ -107,6 +107,7 @@ class AdapterGovernorImpl extends AbstractBluetoothObjectGovernor<Adapter> imple
     @Override
     public void setPoweredControl(boolean poweredControl) {
         this.poweredControl = poweredControl;
+        requestUpdate();
     }
 
     @Override
@@ -122,6 +123,7 @@ class AdapterGovernorImpl extends AbstractBluetoothObjectGovernor<Adapter> imple
     @Override
     public void setDiscoveringControl(boolean discovering) {
         discoveringControl = discovering;
+        requestUpdate();
     }
 
     @Override
@@ -250,7 +252,7 @@ class AdapterGovernorImpl extends AbstractBluetoothObjectGovernor<Adapter> imple
         logger.debug("Enabling powered notifications: {} : {} ", url, poweredNotification == null);
         if (poweredNotification == null) {
             poweredNotification = new PoweredNotification();
-            adapter.enablePoweredNotifications(poweredNotification);
+            adapter.enablePoweredNotificationsPrimitive(poweredNotification);
             logger.trace("Powered notifications enabled: {}", url);
         }
     }
@@ -259,22 +261,22 @@ class AdapterGovernorImpl extends AbstractBluetoothObjectGovernor<Adapter> imple
         logger.debug("Enabling discovering notifications: {} : {}", url, discoveringNotification == null);
         if (discoveringNotification == null) {
             discoveringNotification = new DiscoveringNotification();
-            adapter.enableDiscoveringNotifications(discoveringNotification);
+            adapter.enableDiscoveringNotificationsPrimitive(discoveringNotification);
             logger.trace("Discovering notifications enabled: {}", url);
         }
     }
 
-    private class PoweredNotification implements Notification<Boolean> {
+    private class PoweredNotification implements BooleanNotification {
         @Override
-        public void notify(Boolean powered) {
+        public void notify(boolean powered) {
             notifyPowered(powered);
             updateLastChanged();
         }
     }
 
-    private class DiscoveringNotification implements Notification<Boolean> {
+    private class DiscoveringNotification implements BooleanNotification {
         @Override
-        public void notify(Boolean discovering) {
+        public void notify(boolean discovering) {
             notifyDiscovering(discovering);
             updateLastChanged();
         }
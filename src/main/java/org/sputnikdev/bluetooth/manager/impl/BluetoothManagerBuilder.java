@@ -24,12 +24,14 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.sputnikdev.bluetooth.manager.AdapterDiscoveryListener;
 import org.sputnikdev.bluetooth.manager.BluetoothManager;
+import org.sputnikdev.bluetooth.manager.CharacteristicGovernor;
 import org.sputnikdev.bluetooth.manager.DeviceDiscoveryListener;
 import org.sputnikdev.bluetooth.manager.DiscoveredAdapter;
 import org.sputnikdev.bluetooth.manager.DiscoveredDevice;
 import org.sputnikdev.bluetooth.manager.transport.BluetoothObjectFactory;
 
 import java.lang.reflect.Constructor;
+import java.nio.file.Path;
 
 /**
  * Bluetooth Manager instance builder.
@@ -50,6 +52,13 @@ public class BluetoothManagerBuilder {
     private boolean started = true;
     private boolean discovering;
     private boolean ignoreTransportInitErrors;
+    private boolean timingWheel = true;
+    private boolean activityAwareRefresh;
+    private int valueCacheCapacity = CharacteristicValueCache.DEFAULT_CAPACITY;
+    private Path gattCacheDirectory;
+    private Path journalFile;
+    private int rssiIngestionWorkers;
+    private int readinessTimeout = BluetoothManagerImpl.READINESS_TIMEOUT_SEC;
 
     /**
      * Sets how frequent the discovery process should update its state.
@@ -153,6 +162,87 @@ public class BluetoothManagerBuilder {
         return this;
     }
 
+    /**
+     * If set to true (default), all governors are periodically updated by a single timing wheel which spreads
+     * updates evenly over the refresh period. Updates are executed through per adapter command lanes, so that
+     * governors of the same adapter are updated one by one and different adapters are updated in parallel.
+     * If set to false, each governor gets its own scheduled task in the scheduled executor (legacy mode).
+     * @param timingWheel if true, governors are updated by a timing wheel
+     */
+    public BluetoothManagerBuilder withTimingWheel(boolean timingWheel) {
+        this.timingWheel = timingWheel;
+        return this;
+    }
+
+    /**
+     * If set to true, periodic governor updates are skipped when the corresponding bluetooth objects have been
+     * proven to be alive by recent activity (e.g. RSSI, connection or value notifications) and nothing is pending
+     * to be applied (e.g. a changed control). A full update is still performed at least every
+     * 10 refresh cycles. See {@link BluetoothManager#getStatistics()} for executed/skipped updates.
+     * @param activityAwareRefresh if true, updates of recently active governors are skipped
+     */
+    public BluetoothManagerBuilder withActivityAwareRefresh(boolean activityAwareRefresh) {
+        this.activityAwareRefresh = activityAwareRefresh;
+        return this;
+    }
+
+    /**
+     * Sets max number of characteristic values kept in the value cache, least recently used values are evicted
+     * first. Caching is enabled per characteristic,
+     * see {@link BluetoothManager#setValueCachePolicy(String, java.time.Duration)}.
+     * @param valueCacheCapacity max number of cached characteristic values
+     */
+    public BluetoothManagerBuilder withValueCacheCapacity(int valueCacheCapacity) {
+        this.valueCacheCapacity = valueCacheCapacity;
+        return this;
+    }
+
+    /**
+     * Sets a directory where resolved GATT layouts (services and characteristics) of devices are persisted.
+     * When services get resolved (also after restart) and the device reports the same services as a known layout,
+     * the known layout is used without reading characteristics of every service from the transport. Otherwise,
+     * the layout is read from the transport and persisted. GATT layouts are not persisted by default.
+     * @param gattCacheDirectory a directory to store GATT layouts
+     */
+    public BluetoothManagerBuilder withGattCacheDirectory(Path gattCacheDirectory) {
+        this.gattCacheDirectory = gattCacheDirectory;
+        return this;
+    }
+
+    /**
+     * Sets a file where discovered adapters and devices, as well as control flags of adapter and device governors
+     * (powered, discovering, connection and blocked controls) are journaled. When the manager is started,
+     * the journal is used to serve discovery results immediately, then it is reconciled with live discovery results.
+     * Journaled controls are applied to governors once they get created. Nothing is journaled by default.
+     * @param journalFile a journal file
+     */
+    public BluetoothManagerBuilder withJournalFile(Path journalFile) {
+        this.journalFile = journalFile;
+        return this;
+    }
+
+    /**
+     * Sets the number of worker threads which process RSSI readings. Transport notification threads only buffer
+     * RSSI readings of devices, the workers then run them through RSSI filters in batches and notify listeners.
+     * By default (0), RSSI readings are processed by transport notification threads.
+     * @param rssiIngestionWorkers number of RSSI processing threads
+     */
+    public BluetoothManagerBuilder withRssiIngestionWorkers(int rssiIngestionWorkers) {
+        this.rssiIngestionWorkers = rssiIngestionWorkers;
+        return this;
+    }
+
+    /**
+     * Sets how long (in seconds) asynchronous operations (see {@link CharacteristicGovernor#whenReady()}) wait for
+     * governors to become ready, the corresponding futures complete exceptionally with
+     * a {@link java.util.concurrent.TimeoutException} after that. If set to 0, they wait indefinitely.
+     * @param readinessTimeout readiness timeout in seconds
+     */
+    public BluetoothManagerBuilder withReadinessTimeout(int readinessTimeout) {
+        this.readinessTimeout = readinessTimeout;
+        return this;
+    }
+
     /**
      * Builds a new instance of the Bluetooth Manager.
      * @return a new instance of the Bluetooth Manager
@@ -164,6 +254,13 @@ public class BluetoothManagerBuilder {
         manager.setRefreshRate(refreshRate);
         manager.enableCombinedAdapters(combinedAdapters);
         manager.enableCombinedDevices(combinedDevices);
+        manager.enableTimingWheel(timingWheel);
+        manager.enableActivityAwareRefresh(activityAwareRefresh);
+        manager.setValueCacheCapacity(valueCacheCapacity);
+        manager.setGattCacheDirectory(gattCacheDirectory);
+        manager.setJournalFile(journalFile);
+        manager.setRssiIngestionWorkers(rssiIngestionWorkers);
+        manager.setReadinessTimeout(readinessTimeout);
         if (tinybTransport) {
             loadTinyBTransport(manager);
         }
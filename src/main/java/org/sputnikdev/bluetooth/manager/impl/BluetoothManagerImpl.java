@@ -28,6 +28,8 @@ import org.sputnikdev.bluetooth.manager.AdapterDiscoveryListener;
 import org.sputnikdev.bluetooth.manager.AdapterGovernor;
 import org.sputnikdev.bluetooth.manager.BluetoothGovernor;
 import org.sputnikdev.bluetooth.manager.BluetoothManager;
+import org.sputnikdev.bluetooth.manager.BluetoothManagerStatistics;
+import org.sputnikdev.bluetooth.manager.BluetoothSmartDeviceListener;
 import org.sputnikdev.bluetooth.manager.CharacteristicGovernor;
 import org.sputnikdev.bluetooth.manager.CombinedGovernor;
 import org.sputnikdev.bluetooth.manager.DeviceDiscoveryListener;
@@ -35,24 +37,35 @@ import org.sputnikdev.bluetooth.manager.DeviceGovernor;
 import org.sputnikdev.bluetooth.manager.DiscoveredAdapter;
 import org.sputnikdev.bluetooth.manager.DiscoveredDevice;
 import org.sputnikdev.bluetooth.manager.ManagerListener;
+import org.sputnikdev.bluetooth.manager.NotReadyException;
 import org.sputnikdev.bluetooth.manager.transport.BluetoothObject;
 import org.sputnikdev.bluetooth.manager.transport.BluetoothObjectFactory;
 
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.function.BiFunction;
 import java.util.function.Consumer;
 import java.util.function.Function;
+import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
 /**
@@ -63,6 +76,7 @@ class BluetoothManagerImpl implements BluetoothManager {
 
     static final int REFRESH_RATE_SEC = 5;
     static final int DISCOVERY_RATE_SEC = 10;
+    static final int READINESS_TIMEOUT_SEC = 30;
 
     private Logger logger = LoggerFactory.getLogger(BluetoothManagerImpl.class);
 
@@ -70,25 +84,54 @@ class BluetoothManagerImpl implements BluetoothManager {
 
     private final ScheduledExecutorService discoveryScheduler = Executors.newScheduledThreadPool(6);
     private final ScheduledExecutorService governorScheduler = Executors.newScheduledThreadPool(5);
+    private final ExecutorService commandExecutor = Executors.newCachedThreadPool();
+    private final Map<URL, CommandLane> commandLanes = new ConcurrentHashMap<>();
+    private final Set<URL> pendingUpdates = ConcurrentHashMap.newKeySet();
     private final Map<String, ScheduledFuture<?>> adapterDiscoveryFutures = new ConcurrentHashMap<>();
     private final Map<String, ScheduledFuture<?>> deviceDiscoveryFutures = new ConcurrentHashMap<>();
-    private final Map<URL, ScheduledFuture<?>> governorFutures = new HashMap<>();
+    private final Map<URL, Future<?>> governorFutures = new ConcurrentHashMap<>();
+    private final GovernorTimingWheel timingWheel = new GovernorTimingWheel(governorScheduler,
+            GovernorTimingWheel.DEFAULT_TICK_MS, TimeUnit.MILLISECONDS, GovernorTimingWheel.DEFAULT_WHEEL_SIZE);
+    private ScheduledFuture<?> timingWheelFuture;
 
     private final Set<DeviceDiscoveryListener> deviceDiscoveryListeners = new CopyOnWriteArraySet<>();
     private final Set<AdapterDiscoveryListener> adapterDiscoveryListeners = new CopyOnWriteArraySet<>();
     private final Set<ManagerListener> managerListeners = new CopyOnWriteArraySet<>();
 
+    // flyweights of frequently used URLs, owned by this manager so that other managers' churn does not evict them
+    private final CanonicalURLs canonicalURLs = new CanonicalURLs();
     private final Map<URL, BluetoothObjectGovernor> governors = new ConcurrentHashMap<>();
-    private final Set<DiscoveredDevice> discoveredDevices = new CopyOnWriteArraySet<>();
+    // hierarchical view of the governors map keys, used to visit descendants of a given URL,
+    // the map and the index are modified together under the index lock
+    private final GovernorTreeIndex governorIndex = new GovernorTreeIndex(canonicalURLs);
+    // governors which are being created and initialized, concurrent callers wait for them instead of locking
+    private final Map<URL, GovernorCreation> governorCreations = new ConcurrentHashMap<>();
+    private final CharacteristicValueCache valueCache = new CharacteristicValueCache();
+    // RSSI readings are processed synchronously by notification threads unless ingestion workers are set
+    private volatile RssiIngestion rssiIngestion;
+    // GATT layouts are not persisted unless a cache directory is set
+    private GattCache gattCache;
+    // discovery results and governor controls are not journaled unless a journal file is set
+    private DiscoveryJournal journal;
+    private boolean journalRestored;
+    // governor controls restored from the journal, they are applied when corresponding governors get created
+    private final Map<URL, Integer> restoredControls = new ConcurrentHashMap<>();
+    private ScheduledFuture<?> journalFuture;
+    private final BluetoothManagerStatisticsImpl statistics =
+            new BluetoothManagerStatisticsImpl(commandLanes, governors.values(), valueCache, this::getRssiBacklog);
+    private final Map<URL, DiscoveredDevice> discoveredDevices = new ConcurrentHashMap<>();
     private final Set<DiscoveredAdapter> discoveredAdapters = new CopyOnWriteArraySet<>();
 
     private boolean startDiscovering;
     private int discoveryRate = DISCOVERY_RATE_SEC;
     private int refreshRate = REFRESH_RATE_SEC;
+    private volatile int readinessTimeout = READINESS_TIMEOUT_SEC;
     private boolean rediscover;
     private boolean started;
     private boolean combinedAdapters;
     private boolean combinedDevices = true;
+    private boolean timingWheelEnabled = true;
+    private boolean activityAwareRefresh;
 
     @Override
     public void start(boolean startDiscovering) {
@@ -98,12 +141,23 @@ class BluetoothManagerImpl implements BluetoothManager {
             return;
         }
         this.startDiscovering = startDiscovering;
+        restoreJournal();
         synchronized (factories) {
             factories.values().forEach(this::scheduleDiscovery);
         }
         synchronized (governorScheduler) {
+            if (timingWheelEnabled) {
+                timingWheelFuture = governorScheduler.scheduleAtFixedRate(timingWheel::tick,
+                    GovernorTimingWheel.DEFAULT_TICK_MS, GovernorTimingWheel.DEFAULT_TICK_MS, TimeUnit.MILLISECONDS);
+            }
             governors.values().forEach(this::scheduleGovernor);
         }
+        if (journal != null) {
+            synchronized (discoveryScheduler) {
+                journalFuture = discoveryScheduler.scheduleWithFixedDelay(this::saveJournal, discoveryRate,
+                    discoveryRate, TimeUnit.SECONDS);
+            }
+        }
         started = true;
     }
 
@@ -135,6 +189,7 @@ class BluetoothManagerImpl implements BluetoothManager {
     public void stop() {
         logger.debug("Stopping bluetooth manager: {}", Integer.toHexString(hashCode()));
         cancelAllFutures(false);
+        saveJournal();
         started = false;
     }
 
@@ -169,22 +224,22 @@ class BluetoothManagerImpl implements BluetoothManager {
         if (url.isProtocol() || url.isRoot()) {
             return null;
         }
-        URL protocolLess = url.copyWithProtocol(null);
+        URL protocolLess = canonicalURLs.protocolLess(url);
         BluetoothObjectGovernor governor = governors.get(protocolLess);
         if (governor == null) {
             logger.trace("Governor does not exist: {}", protocolLess);
-            synchronized (governors) {
-                // is it still missing?
-                if (!governors.containsKey(protocolLess)) {
-                    governor = createGovernor(protocolLess);
-                    governors.put(protocolLess, governor);
-                    init(governor);
-                    scheduleGovernor(governor);
-                    return governor;
-                } else {
-                    governor = governors.get(protocolLess);
-                    logger.trace("Returning an existing governor: {}", governor);
-                }
+            GovernorCreation creation = new GovernorCreation();
+            GovernorCreation pending = governorCreations.putIfAbsent(protocolLess, creation);
+            if (pending == null) {
+                return createAndInitGovernor(protocolLess, creation);
+            }
+            logger.trace("Governor is being created by another thread, waiting: {}", protocolLess);
+            governor = pending.await();
+        } else {
+            GovernorCreation pending = governorCreations.get(protocolLess);
+            if (pending != null) {
+                // the governor is still being initialized
+                pending.await();
             }
         }
         if (!governor.isReady()) {
@@ -197,13 +252,10 @@ class BluetoothManagerImpl implements BluetoothManager {
     @Override
     public void disposeGovernor(URL url) {
         logger.debug("Explicitly disposing governor: {}", url);
-        synchronized (governors) {
-            URL protocolLess = url.copyWithProtocol(null);
-            if (governors.containsKey(protocolLess)) {
-                BluetoothObjectGovernor governor = governors.get(protocolLess);
-                disposeGovernor(governor);
-                governors.remove(protocolLess);
-            }
+        URL protocolLess = canonicalURLs.protocolLess(url);
+        BluetoothObjectGovernor governor = unregisterGovernor(protocolLess);
+        if (governor != null) {
+            disposeGovernor(governor);
         }
     }
 
@@ -255,22 +307,75 @@ class BluetoothManagerImpl implements BluetoothManager {
         return characteristicGovernor;
     }
 
+    @Override
+    public CompletableFuture<DeviceGovernor> acquireDeviceAsync(URL url, Duration timeout) {
+        CompletableFuture<DeviceGovernor> future = new CompletableFuture<>();
+        try {
+            if (commandExecutor.isShutdown()) {
+                throw new RejectedExecutionException("Command executor is shut down");
+            }
+            ScheduledFuture<?> timeoutFuture = governorScheduler.schedule(() -> future.completeExceptionally(
+                    new TimeoutException("Device has not been acquired within " + timeout + ": " + url)),
+                    timeout.toMillis(), TimeUnit.MILLISECONDS);
+            future.whenComplete((governor, error) -> timeoutFuture.cancel(false));
+            // the governor gets created (and possibly updated) by the command lane, never by the caller thread
+            getCommandLane(url).execute(() -> acquireDevice(url, future));
+        } catch (RejectedExecutionException ex) {
+            logger.warn("Could not acquire device governor, the manager is disposed: {}", url);
+            future.completeExceptionally(ex);
+        }
+        return future;
+    }
+
+    private void acquireDevice(URL url, CompletableFuture<DeviceGovernor> future) {
+        if (future.isDone()) {
+            return;
+        }
+        try {
+            DeviceGovernor deviceGovernor = getDeviceGovernor(url);
+            // services get resolved only when the device is connected
+            BluetoothSmartDeviceListener listener = services -> future.complete(deviceGovernor);
+            deviceGovernor.addBluetoothSmartDeviceListener(listener);
+            future.whenComplete((governor, error) -> deviceGovernor.removeBluetoothSmartDeviceListener(listener));
+
+            logger.debug("Acquiring device governor asynchronously: {}", deviceGovernor);
+            deviceGovernor.setConnectionControl(true);
+            // the device might be connected already, or it might need an update to get connected
+            if (!future.isDone()) {
+                update((BluetoothObjectGovernor) deviceGovernor);
+                if (isServicesResolved(deviceGovernor)) {
+                    future.complete(deviceGovernor);
+                }
+            }
+        } catch (RuntimeException ex) {
+            future.completeExceptionally(ex);
+        }
+    }
+
     @Override
     public void dispose() {
         logger.debug("Disposing Bluetooth manager: {}", Integer.toHexString(hashCode()));
 
         cancelAllFutures(true);
+        timingWheel.stop();
+        saveJournal();
 
         governorScheduler.shutdown();
         discoveryScheduler.shutdown();
+        commandExecutor.shutdown();
+        setRssiIngestionWorkers(0);
 
         deviceDiscoveryListeners.clear();
         adapterDiscoveryListeners.clear();
 
         factories.clear();
 
-        Map<URL, BluetoothObjectGovernor> tmp = new HashMap<>(governors);
-        governors.clear();
+        Map<URL, BluetoothObjectGovernor> tmp;
+        synchronized (governorIndex) {
+            tmp = new HashMap<>(governors);
+            governors.clear();
+            governorIndex.clear();
+        }
         tmp.values().forEach(this::dispose);
 
         logger.debug("Bluetooth manager has been disposed: {}", Integer.toHexString(hashCode()));
@@ -280,15 +385,15 @@ class BluetoothManagerImpl implements BluetoothManager {
     public Set<DiscoveredDevice> getDiscoveredDevices() {
         if (combinedDevices) {
             Map<URL, List<DiscoveredDevice>> groupedByDeviceAddress =
-                discoveredDevices.stream().collect(
-                    Collectors.groupingBy(t -> t.getURL().copyWithAdapter(CombinedGovernor.COMBINED_ADDRESS)));
+                discoveredDevices.values().stream().collect(
+                    Collectors.groupingBy(t -> canonicalURLs.combined(t.getURL())));
             return groupedByDeviceAddress.entrySet().stream().map(entry -> {
                 DiscoveredDevice discoveredDevice = entry.getValue().get(0);
                 return new DiscoveredDevice(entry.getKey(), discoveredDevice.getName(), discoveredDevice.getAlias(),
                     discoveredDevice.getRSSI(), discoveredDevice.getBluetoothClass(), discoveredDevice.isBleEnabled());
             }).collect(Collectors.toSet());
         } else {
-            return Collections.unmodifiableSet(discoveredDevices);
+            return Collections.unmodifiableSet(new HashSet<>(discoveredDevices.values()));
         }
     }
 
@@ -324,12 +429,62 @@ class BluetoothManagerImpl implements BluetoothManager {
         managerListeners.remove(listener);
     }
 
+    @Override
+    public BluetoothManagerStatistics getStatistics() {
+        return statistics;
+    }
+
+    @Override
+    public void setValueCachePolicy(String characteristicUUID, Duration ttl) {
+        valueCache.setPolicy(characteristicUUID, ttl);
+    }
+
+    @Override
+    public void setValueCachePolicy(Pattern urlPattern, Duration ttl) {
+        valueCache.setPolicy(urlPattern, ttl);
+    }
+
+    CharacteristicValueCache getValueCache() {
+        return valueCache;
+    }
+
+    CanonicalURLs getCanonicalURLs() {
+        return canonicalURLs;
+    }
+
     protected void scheduleUpdate(BluetoothObjectGovernor governor) {
-        if (!governorScheduler.isShutdown()) {
-            governorScheduler.submit(() -> update(governor));
+        if (!commandExecutor.isShutdown()) {
+            URL url = governor.getURL();
+            // at most one pending update per governor, any further requests are merged into the pending one
+            if (pendingUpdates.add(url)) {
+                try {
+                    getCommandLane(url).execute(() -> {
+                        // requests that come while updating must trigger another update, hence removing it beforehand
+                        pendingUpdates.remove(url);
+                        update(governor);
+                    });
+                } catch (RejectedExecutionException ex) {
+                    logger.debug("Update is rejected, the manager is disposed: {}", url);
+                    pendingUpdates.remove(url);
+                }
+            } else {
+                logger.trace("Update is already pending, coalescing: {}", url);
+                statistics.updateCoalesced();
+            }
         }
     }
 
+    /**
+     * Returns a command lane for the adapter of the given URL. Native calls for the same adapter are executed
+     * one by one through its command lane, whereas different adapters are served in parallel.
+     * @param url a URL of a bluetooth object (adapter, device, characteristic)
+     * @return a command lane of the corresponding adapter
+     */
+    CommandLane getCommandLane(URL url) {
+        return commandLanes.computeIfAbsent(canonicalURLs.adapter(url),
+            adapterURL -> new CommandLane(adapterURL, commandExecutor));
+    }
+
     BluetoothObjectFactory getFactory(String protocolName) {
         logger.trace("Getting registered transport (factory): {}", protocolName);
         BluetoothObjectFactory factory = factories.get(protocolName);
@@ -351,6 +506,31 @@ class BluetoothManagerImpl implements BluetoothManager {
         this.refreshRate = refreshRate;
     }
 
+    void setReadinessTimeout(int readinessTimeout) {
+        this.readinessTimeout = readinessTimeout;
+    }
+
+    /**
+     * Completes the given readiness future exceptionally with a {@link TimeoutException} if it is not completed
+     * within the readiness timeout. Nothing is scheduled if the timeout is not set.
+     * @param future a future which completes when a governor becomes ready
+     * @param url governor URL
+     */
+    void scheduleReadinessTimeout(CompletableFuture<?> future, URL url) {
+        int timeout = readinessTimeout;
+        if (timeout <= 0 || future.isDone()) {
+            return;
+        }
+        try {
+            ScheduledFuture<?> timeoutFuture = governorScheduler.schedule(() -> future.completeExceptionally(
+                    new TimeoutException("Governor has not become ready within " + timeout + " seconds: " + url)),
+                    timeout, TimeUnit.SECONDS);
+            future.whenComplete((result, error) -> timeoutFuture.cancel(false));
+        } catch (RejectedExecutionException ex) {
+            future.completeExceptionally(new NotReadyException("Bluetooth manager has been disposed: " + url));
+        }
+    }
+
     void enableCombinedAdapters(boolean combineAdapters) {
         combinedAdapters = combineAdapters;
     }
@@ -359,6 +539,90 @@ class BluetoothManagerImpl implements BluetoothManager {
         combinedDevices = combineDevices;
     }
 
+    void enableTimingWheel(boolean timingWheel) {
+        timingWheelEnabled = timingWheel;
+    }
+
+    void enableActivityAwareRefresh(boolean activityAware) {
+        activityAwareRefresh = activityAware;
+    }
+
+    void setValueCacheCapacity(int capacity) {
+        valueCache.setCapacity(capacity);
+    }
+
+    void setGattCacheDirectory(Path directory) {
+        // GATT layout files are read and written by discovery threads, never by notification threads
+        gattCache = directory != null ? new GattCache(directory, discoveryScheduler) : null;
+    }
+
+    GattCache getGattCache() {
+        return gattCache;
+    }
+
+    synchronized void setRssiIngestionWorkers(int workers) {
+        if (rssiIngestion != null) {
+            rssiIngestion.dispose();
+        }
+        rssiIngestion = workers > 0 ? new RssiIngestion(workers) : null;
+    }
+
+    RssiIngestion getRssiIngestion() {
+        return rssiIngestion;
+    }
+
+    void updateRssiOverflown() {
+        statistics.updateRssiOverflown();
+    }
+
+    private int getRssiBacklog() {
+        RssiIngestion ingestion = rssiIngestion;
+        return ingestion != null ? ingestion.getBacklog() : 0;
+    }
+
+    void setJournalFile(Path file) {
+        journal = file != null ? new DiscoveryJournal(file) : null;
+    }
+
+    void saveJournal() {
+        if (journal != null
+                && journal.save(discoveredAdapters, discoveredDevices.values(), governors.values(), restoredControls)) {
+            logger.debug("Discovery journal has been updated");
+        }
+    }
+
+    private void restoreJournal() {
+        if (journal == null || journalRestored) {
+            return;
+        }
+        journalRestored = true;
+        DiscoveryJournal.Snapshot snapshot = journal.load();
+        logger.debug("Restoring discovery journal: {} adapters, {} devices, {} governors",
+            snapshot.getAdapters().size(), snapshot.getDevices().size(), snapshot.getControls().size());
+        // restored objects are reconciled with live discovery results by discovery jobs of their transports
+        snapshot.getAdapters().forEach(adapter -> {
+            notifyAdapterDiscovered(adapter);
+            discoveredAdapters.add(adapter);
+        });
+        snapshot.getDevices().forEach(device -> {
+            notifyDeviceDiscovered(device);
+            discoveredDevices.putIfAbsent(device.getURL(), device);
+        });
+        // governors are not created here, their controls are applied once they are requested
+        restoredControls.putAll(snapshot.getControls());
+    }
+
+    private void applyRestoredControls(BluetoothObjectGovernor governor) {
+        Integer controls = restoredControls.remove(governor.getURL());
+        if (controls != null) {
+            try {
+                DiscoveryJournal.applyControls(governor, controls);
+            } catch (Exception ex) {
+                logger.warn("Could not restore governor controls: " + governor.getURL(), ex);
+            }
+        }
+    }
+
     protected void notifyGovernorReady(BluetoothGovernor governor, boolean ready) {
         logger.debug("Notifying manager listeners (governor ready): {} : {}",
                 managerListeners.size(), ready);
@@ -447,6 +711,28 @@ class BluetoothManagerImpl implements BluetoothManager {
         throw new IllegalStateException("Unknown url");
     }
 
+    private BluetoothObjectGovernor createAndInitGovernor(URL url, GovernorCreation creation) {
+        try {
+            // it might have been created since it was checked last time
+            BluetoothObjectGovernor governor = governors.get(url);
+            if (governor == null) {
+                governor = createGovernor(url);
+                registerGovernor(url, governor);
+                // initialization happens outside of any global lock, it might take a while for some transports
+                init(governor);
+                applyRestoredControls(governor);
+                scheduleGovernor(governor);
+            }
+            creation.complete(governor);
+            return governor;
+        } catch (RuntimeException ex) {
+            creation.completeExceptionally(ex);
+            throw ex;
+        } finally {
+            governorCreations.remove(url, creation);
+        }
+    }
+
     private void handleObjectFactoryUnregistered(BluetoothObjectFactory bluetoothObjectFactory) {
         String protocol = bluetoothObjectFactory.getProtocolName();
         synchronized (discoveryScheduler) {
@@ -489,7 +775,7 @@ class BluetoothManagerImpl implements BluetoothManager {
     private void notifyDeviceDiscovered(DiscoveredDevice device) {
         logger.debug("Notifying device discovery listeners (discovered): {} : {}",
                 device, deviceDiscoveryListeners.size());
-        if (discoveredDevices.contains(device) && !rediscover) {
+        if (discoveredDevices.containsKey(device.getURL()) && !rediscover) {
             return;
         }
         BluetoothManagerUtils.safeForEachError(deviceDiscoveryListeners,
@@ -498,7 +784,7 @@ class BluetoothManagerImpl implements BluetoothManager {
                     listener.discovered(device);
                 } else {
                     listener.discovered(new DiscoveredDevice(
-                            device.getURL().copyWithAdapter(CombinedGovernor.COMBINED_ADDRESS),
+                            canonicalURLs.combined(device.getURL()),
                             device.getName(), device.getAlias(), device.getRSSI(), device.getBluetoothClass(),
                             device.isBleEnabled()));
                 }
@@ -551,6 +837,14 @@ class BluetoothManagerImpl implements BluetoothManager {
         }
     }
 
+    private static boolean isServicesResolved(DeviceGovernor deviceGovernor) {
+        try {
+            return deviceGovernor.isReady() && deviceGovernor.isConnected() && deviceGovernor.isServicesResolved();
+        } catch (NotReadyException ex) {
+            return false;
+        }
+    }
+
     private void update(BluetoothObjectGovernor governor) {
         try {
             logger.debug("Updating governor: {}", governor.getURL());
@@ -560,6 +854,17 @@ class BluetoothManagerImpl implements BluetoothManager {
         }
     }
 
+    private void refresh(BluetoothObjectGovernor governor) {
+        if (activityAwareRefresh && governor instanceof AbstractBluetoothObjectGovernor
+                && ((AbstractBluetoothObjectGovernor) governor).deferUpdate(TimeUnit.SECONDS.toMillis(refreshRate))) {
+            logger.trace("Governor has been recently active, skipping the update: {}", governor.getURL());
+            statistics.updateSkipped();
+            return;
+        }
+        statistics.updateExecuted();
+        update(governor);
+    }
+
     private void init(BluetoothObjectGovernor governor) {
         try {
             logger.debug("Initializing governor: {}", governor.getURL());
@@ -592,15 +897,15 @@ class BluetoothManagerImpl implements BluetoothManager {
 
             discovered.forEach(BluetoothManagerImpl.this::notifyDeviceDiscovered);
 
-            Set<DiscoveredDevice> factoryDevices = discoveredDevices.stream()
+            Set<DiscoveredDevice> factoryDevices = discoveredDevices.values().stream()
                     .filter(device -> factory.getProtocolName().equals(device.getURL().getProtocol()))
                     .collect(Collectors.toSet());
 
             Set<DiscoveredDevice> lostDevices = Sets.difference(factoryDevices, discovered);
             lostDevices.forEach(lost -> handleDeviceLost(lost.getURL()));
 
-            discoveredDevices.removeAll(lostDevices);
-            discoveredDevices.addAll(discovered);
+            lostDevices.forEach(lost -> discoveredDevices.remove(lost.getURL()));
+            discovered.forEach(device -> discoveredDevices.putIfAbsent(device.getURL(), device));
         }
     }
 
@@ -645,20 +950,63 @@ class BluetoothManagerImpl implements BluetoothManager {
         }
     }
 
+    private static final class GovernorCreation extends CompletableFuture<BluetoothObjectGovernor> {
+
+        private final Thread creator = Thread.currentThread();
+
+        private BluetoothObjectGovernor await() {
+            if (creator == Thread.currentThread()) {
+                // reentrant call from the governor initialization
+                return getNow(null);
+            }
+            try {
+                return join();
+            } catch (CompletionException ex) {
+                if (ex.getCause() instanceof RuntimeException) {
+                    throw (RuntimeException) ex.getCause();
+                }
+                throw ex;
+            }
+        }
+    }
+
     private void computeForEachDescendantGovernorAndRemove(URL url, Consumer<BluetoothObjectGovernor> consumer) {
-        URL protocolLess = url.copyWithProtocol(null);
-        governors.entrySet().removeIf(entry -> {
-            if (entry.getKey().isDescendant(protocolLess)) {
-                consumer.accept(entry.getValue());
-                return true;
+        List<BluetoothObjectGovernor> removed = new ArrayList<>();
+        synchronized (governorIndex) {
+            for (URL descendant : governorIndex.getDescendants(url)) {
+                BluetoothObjectGovernor governor = governors.remove(descendant);
+                governorIndex.remove(descendant);
+                if (governor != null) {
+                    removed.add(governor);
+                }
             }
-            return false;
-        });
+        }
+        removed.forEach(consumer);
+    }
+
+    private void registerGovernor(URL url, BluetoothObjectGovernor governor) {
+        // the index never refers to a removed governor and never misses a registered one
+        synchronized (governorIndex) {
+            governors.put(url, governor);
+            governorIndex.add(url);
+        }
+    }
+
+    private BluetoothObjectGovernor unregisterGovernor(URL url) {
+        synchronized (governorIndex) {
+            BluetoothObjectGovernor governor = governors.remove(url);
+            governorIndex.remove(url);
+            return governor;
+        }
     }
 
     private void computeForEachDescendantGovernor(URL url, Consumer<BluetoothObjectGovernor> consumer) {
-        URL protocolLess = url.copyWithProtocol(null);
-        governors.values().stream().filter(governor -> governor.getURL().isDescendant(protocolLess)).forEach(consumer);
+        for (URL descendant : governorIndex.getDescendants(url)) {
+            BluetoothObjectGovernor governor = governors.get(descendant);
+            if (governor != null) {
+                consumer.accept(governor);
+            }
+        }
     }
 
     private void scheduleDiscovery(BluetoothObjectFactory factory) {
@@ -674,8 +1022,19 @@ class BluetoothManagerImpl implements BluetoothManager {
     }
 
     private void scheduleGovernor(BluetoothObjectGovernor governor) {
-        governorFutures.put(governor.getURL(),
-            governorScheduler.scheduleWithFixedDelay(() -> update(governor),5, refreshRate, TimeUnit.SECONDS));
+        Future<?> future;
+        if (timingWheelEnabled) {
+            // initial delays are spread over the refresh period so that governors do not fire all together
+            future = timingWheel.scheduleSpread(() -> refresh(governor), getCommandLane(governor.getURL()),
+                refreshRate, TimeUnit.SECONDS);
+        } else {
+            future = governorScheduler.scheduleWithFixedDelay(() -> refresh(governor), 5, refreshRate,
+                TimeUnit.SECONDS);
+        }
+        Future<?> previous = governorFutures.put(governor.getURL(), future);
+        if (previous != null) {
+            previous.cancel(false);
+        }
     }
 
     private void cancelAllFutures(boolean forceInterrupt) {
@@ -684,8 +1043,16 @@ class BluetoothManagerImpl implements BluetoothManager {
             adapterDiscoveryFutures.clear();
             deviceDiscoveryFutures.values().forEach(future -> future.cancel(forceInterrupt));
             deviceDiscoveryFutures.clear();
+            if (journalFuture != null) {
+                journalFuture.cancel(forceInterrupt);
+                journalFuture = null;
+            }
         }
         synchronized (governorScheduler) {
+            if (timingWheelFuture != null) {
+                timingWheelFuture.cancel(forceInterrupt);
+                timingWheelFuture = null;
+            }
             governorFutures.values().forEach(future -> future.cancel(forceInterrupt));
             governorFutures.clear();
         }
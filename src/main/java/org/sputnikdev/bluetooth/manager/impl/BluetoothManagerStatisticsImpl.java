@@ -0,0 +1,128 @@
+package org.sputnikdev.bluetooth.manager.impl;
+
+/*-
+ * #%L
+ * org.sputnikdev:bluetooth-manager
+ * %%
+ * Copyright (C) 2017 Sputnik Dev
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.sputnikdev.bluetooth.URL;
+import org.sputnikdev.bluetooth.manager.BluetoothManagerStatistics;
+import org.sputnikdev.bluetooth.manager.CharacteristicStatistics;
+import org.sputnikdev.bluetooth.manager.CommandLaneStatistics;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.IntSupplier;
+import java.util.stream.Collectors;
+
+/**
+ * Thread safe bluetooth manager statistics.
+ * @author Vlad Kolotov
+ */
+class BluetoothManagerStatisticsImpl implements BluetoothManagerStatistics {
+
+    private final LongAdder executedUpdates = new LongAdder();
+    private final LongAdder skippedUpdates = new LongAdder();
+    private final LongAdder coalescedUpdates = new LongAdder();
+    private final LongAdder rssiOverflows = new LongAdder();
+    private final Map<URL, ? extends CommandLaneStatistics> commandLanes;
+    private final Collection<?> governors;
+    private final CharacteristicValueCache valueCache;
+    private final IntSupplier rssiBacklog;
+
+    BluetoothManagerStatisticsImpl(Map<URL, ? extends CommandLaneStatistics> commandLanes, Collection<?> governors,
+                                   CharacteristicValueCache valueCache, IntSupplier rssiBacklog) {
+        this.commandLanes = commandLanes;
+        this.governors = governors;
+        this.valueCache = valueCache;
+        this.rssiBacklog = rssiBacklog;
+    }
+
+    @Override
+    public long getExecutedUpdates() {
+        return executedUpdates.sum();
+    }
+
+    @Override
+    public long getSkippedUpdates() {
+        return skippedUpdates.sum();
+    }
+
+    @Override
+    public long getCoalescedUpdates() {
+        return coalescedUpdates.sum();
+    }
+
+    @Override
+    public Map<URL, CommandLaneStatistics> getCommandLanes() {
+        return Collections.unmodifiableMap(commandLanes);
+    }
+
+    @Override
+    public long getValueCacheHits() {
+        return valueCache.getHits();
+    }
+
+    @Override
+    public long getValueCacheMisses() {
+        return valueCache.getMisses();
+    }
+
+    @Override
+    public int getValueCacheSize() {
+        return valueCache.size();
+    }
+
+    @Override
+    public Map<URL, CharacteristicStatistics> getCharacteristics() {
+        return governors.stream()
+                .filter(CharacteristicStatistics.class::isInstance)
+                .map(CharacteristicStatistics.class::cast)
+                .collect(Collectors.toMap(CharacteristicStatistics::getURL, Function.identity()));
+    }
+
+    @Override
+    public long getRssiOverflows() {
+        return rssiOverflows.sum();
+    }
+
+    @Override
+    public int getRssiBacklog() {
+        return rssiBacklog.getAsInt();
+    }
+
+    void updateExecuted() {
+        executedUpdates.increment();
+    }
+
+    void updateSkipped() {
+        skippedUpdates.increment();
+    }
+
+    void updateCoalesced() {
+        coalescedUpdates.increment();
+    }
+
+    void updateRssiOverflown() {
+        rssiOverflows.increment();
+    }
+
+}
@@ -0,0 +1,189 @@
+package org.sputnikdev.bluetooth.manager.impl;
+
+/*-
+ * #%L
+ * org.sputnikdev:bluetooth-manager
+ * %%
+ * Copyright (C) 2017 Sputnik Dev
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.sputnikdev.bluetooth.URL;
+import org.sputnikdev.bluetooth.manager.CombinedGovernor;
+
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * A canonicalizing cache (flyweights) of URLs and their derived forms which are frequently used by governors:
+ * protocol-less, adapter, combined adapter and per-service URLs.
+ *
+ * <p>Derived URLs are computed once and then returned as shared instances, this cuts allocation on hot paths
+ * and makes lookups in URL-keyed maps cheaper, as equal canonical instances are matched by identity.
+ * Note that URL hash codes are built from hash codes of its string components, which are computed once
+ * and cached by strings themselves.
+ *
+ * <p>Each manager owns its cache, so that one manager's URL churn does not evict another's flyweights.
+ * The cache is bounded, once it reaches its limit a portion of entries is evicted with a second chance policy:
+ * entries used since the previous eviction are kept (and lose their mark), the others are removed. Therefore,
+ * URLs of live governors survive scan storms of short-lived device URLs. Eviction does not affect correctness
+ * as canonical instances are equal to any other instance of the same URL.
+ *
+ * @author Vlad Kolotov
+ */
+final class CanonicalURLs {
+
+    static final int MAX_SIZE = 65536;
+    // evicting in batches amortizes the sweep over many insertions
+    static final int EVICTION_BATCH = MAX_SIZE / 8;
+
+    private final Map<URL, Entry> entries = new ConcurrentHashMap<>();
+    // entries in the order of insertion, the head is the next candidate for eviction
+    private final Queue<Entry> clock = new ConcurrentLinkedQueue<>();
+
+    /**
+     * Returns a canonical instance of the given URL.
+     * @param url a URL
+     * @return a shared instance which is equal to the given URL
+     */
+    URL canonical(URL url) {
+        return getEntry(url).url;
+    }
+
+    /**
+     * Returns a canonical protocol-less form of the given URL.
+     * @param url a URL
+     * @return a shared instance of the URL without protocol
+     */
+    URL protocolLess(URL url) {
+        Entry entry = getEntry(url);
+        URL protocolLess = entry.protocolLess;
+        if (protocolLess == null) {
+            protocolLess = url.getProtocol() == null ? entry.url : canonical(url.copyWithProtocol(null));
+            entry.protocolLess = protocolLess;
+        }
+        return protocolLess;
+    }
+
+    /**
+     * Returns a canonical protocol-less adapter URL of the given URL.
+     * @param url a URL
+     * @return a shared instance of the adapter URL without protocol
+     */
+    URL adapter(URL url) {
+        Entry entry = getEntry(url);
+        URL adapter = entry.adapter;
+        if (adapter == null) {
+            URL protocolLess = protocolLess(url);
+            adapter = protocolLess.isAdapter() ? protocolLess : canonical(protocolLess.getAdapterURL());
+            entry.adapter = adapter;
+        }
+        return adapter;
+    }
+
+    /**
+     * Returns a canonical form of the given URL where the adapter address is replaced with the combined address.
+     * Protocol (if any) is preserved.
+     * @param url a URL
+     * @return a shared instance of the combined URL
+     */
+    URL combined(URL url) {
+        Entry entry = getEntry(url);
+        URL combined = entry.combined;
+        if (combined == null) {
+            combined = CombinedGovernor.COMBINED_ADDRESS.equals(url.getAdapterAddress())
+                    ? entry.url : canonical(url.copyWithAdapter(CombinedGovernor.COMBINED_ADDRESS));
+            entry.combined = combined;
+        }
+        return combined;
+    }
+
+    /**
+     * Returns a canonical service URL of the given device URL.
+     * @param deviceURL a device URL
+     * @param serviceUUID service UUID
+     * @return a shared instance of the service URL
+     */
+    URL service(URL deviceURL, String serviceUUID) {
+        Entry entry = getEntry(deviceURL);
+        Map<String, URL> services = entry.services;
+        if (services == null) {
+            services = new ConcurrentHashMap<>();
+            entry.services = services;
+        }
+        URL service = services.get(serviceUUID);
+        if (service == null) {
+            service = canonical(deviceURL.copyWithService(serviceUUID));
+            services.put(serviceUUID, service);
+        }
+        return service;
+    }
+
+    int size() {
+        return entries.size();
+    }
+
+    private Entry getEntry(URL url) {
+        Entry entry = entries.get(url);
+        if (entry == null) {
+            if (entries.size() >= MAX_SIZE) {
+                evict();
+            }
+            Entry created = new Entry(url);
+            entry = entries.putIfAbsent(url, created);
+            if (entry == null) {
+                entry = created;
+                clock.add(created);
+            }
+        } else if (!entry.referenced) {
+            entry.referenced = true;
+        }
+        return entry;
+    }
+
+    private synchronized void evict() {
+        int evicted = 0;
+        Entry entry;
+        while (evicted < EVICTION_BATCH && entries.size() > MAX_SIZE - EVICTION_BATCH
+                && (entry = clock.poll()) != null) {
+            if (entry.referenced) {
+                // used since it was checked last time, it gets a second chance
+                entry.referenced = false;
+                clock.add(entry);
+            } else if (entries.remove(entry.url, entry)) {
+                evicted++;
+            }
+        }
+    }
+
+    // derived URLs are computed lazily, racing threads may compute them twice which is harmless
+    private static final class Entry {
+
+        private final URL url;
+        private volatile URL protocolLess;
+        private volatile URL adapter;
+        private volatile URL combined;
+        private volatile Map<String, URL> services;
+        // used since the last eviction
+        private volatile boolean referenced;
+
+        private Entry(URL url) {
+            this.url = url;
+        }
+    }
+
+}
@@ -25,30 +25,51 @@ import org.slf4j.LoggerFactory;
 import org.sputnikdev.bluetooth.URL;
 import org.sputnikdev.bluetooth.manager.BluetoothObjectType;
 import org.sputnikdev.bluetooth.manager.BluetoothObjectVisitor;
+import org.sputnikdev.bluetooth.manager.BufferValueListener;
 import org.sputnikdev.bluetooth.manager.CharacteristicGovernor;
+import org.sputnikdev.bluetooth.manager.CharacteristicStatistics;
 import org.sputnikdev.bluetooth.manager.NotReadyException;
 import org.sputnikdev.bluetooth.manager.ValueListener;
+import org.sputnikdev.bluetooth.manager.transport.BufferNotification;
 import org.sputnikdev.bluetooth.manager.transport.Characteristic;
 import org.sputnikdev.bluetooth.manager.transport.CharacteristicAccessType;
 import org.sputnikdev.bluetooth.manager.transport.Notification;
 
+import java.nio.ByteBuffer;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.function.Function;
+import java.util.function.Supplier;
 
 /**
  *
  * @author Vlad Kolotov
  */
 class CharacteristicGovernorImpl extends AbstractBluetoothObjectGovernor<Characteristic>
-    implements CharacteristicGovernor {
+    implements CharacteristicGovernor, CharacteristicStatistics {
 
     private Logger logger = LoggerFactory.getLogger(CharacteristicGovernorImpl.class);
 
     private List<ValueListener> valueListeners = new CopyOnWriteArrayList<>();
+    private List<BufferValueListener> bufferValueListeners = new CopyOnWriteArrayList<>();
     private ValueNotification valueNotification;
     private boolean canNotify;
+    // characteristic flags can't change while services stay resolved, -1 if not known yet
+    private volatile int flags = -1;
+    private final AtomicReference<CompletableFuture<byte[]>> inflightRead = new AtomicReference<>();
+    private final LongAdder nativeReads = new LongAdder();
+    private final LongAdder coalescedReads = new LongAdder();
+    private final LongAdder cacheHits = new LongAdder();
+    private final LongAdder cacheMisses = new LongAdder();
+    // incremented every time the cached value gets invalidated, protects the cache from stale in-flight reads
+    private final AtomicLong valueVersion = new AtomicLong();
 
     CharacteristicGovernorImpl(BluetoothManagerImpl bluetoothManager, URL url) {
         super(bluetoothManager, url);
@@ -57,7 +78,9 @@ class CharacteristicGovernorImpl extends AbstractBluetoothObjectGovernor<Charact
     @Override
     void init(Characteristic characteristic) {
         logger.debug("Initializing characteristic governor: {}", url);
-        canNotify = canNotify(characteristic);
+        int flags = CharacteristicAccessType.toBitField(characteristic.getFlags());
+        this.flags = flags;
+        canNotify = canNotify(flags);
         logger.trace("Characteristic governor initialization performed: {} : {}", url, canNotify);
     }
 
@@ -67,10 +90,10 @@ class CharacteristicGovernorImpl extends AbstractBluetoothObjectGovernor<Charact
         if (canNotify) {
             boolean notifying = characteristic.isNotifying();
             logger.trace("Updating characteristic governor notifications state: {} : {} / {} / {}",
-                    url, valueListeners.isEmpty(), notifying, valueNotification == null);
-            if (!valueListeners.isEmpty() && (!notifying || valueNotification == null)) {
+                    url, !hasValueListeners(), notifying, valueNotification == null);
+            if (hasValueListeners() && (!notifying || valueNotification == null)) {
                 enableNotification(characteristic);
-            } else if (valueListeners.isEmpty() && notifying) {
+            } else if (!hasValueListeners() && notifying) {
                 disableNotification(characteristic);
             }
         }
@@ -80,6 +103,8 @@ class CharacteristicGovernorImpl extends AbstractBluetoothObjectGovernor<Charact
     void reset(Characteristic characteristic) {
         logger.debug("Resetting characteristic governor: {}", url);
         valueNotification = null;
+        flags = -1;
+        invalidateValue();
         try {
             // force notification to be disabled and ignore any error
             characteristic.disableValueNotifications();
@@ -93,28 +118,43 @@ class CharacteristicGovernorImpl extends AbstractBluetoothObjectGovernor<Charact
         super.dispose();
         logger.debug("Disposing characteristic governor: {}", url);
         valueListeners.clear();
+        bufferValueListeners.clear();
         logger.trace("Characteristic governor disposed: {}", url);
     }
 
     @Override
     public void addValueListener(ValueListener valueListener) {
         valueListeners.add(valueListener);
+        requestUpdate();
     }
 
     @Override
     public void removeValueListener(ValueListener valueListener) {
         valueListeners.remove(valueListener);
+        requestUpdate();
+    }
+
+    @Override
+    public void addBufferValueListener(BufferValueListener valueListener) {
+        bufferValueListeners.add(valueListener);
+        requestUpdate();
+    }
+
+    @Override
+    public void removeBufferValueListener(BufferValueListener valueListener) {
+        bufferValueListeners.remove(valueListener);
+        requestUpdate();
     }
 
     @Override
     public Set<CharacteristicAccessType> getFlags() throws NotReadyException {
-        return interact("getFlags", Characteristic::getFlags);
+        int flags = this.flags;
+        return flags >= 0 ? CharacteristicAccessType.parse(flags) : interact("getFlags", Characteristic::getFlags);
     }
 
     @Override
     public boolean isNotifiable() throws NotReadyException {
-        Set<CharacteristicAccessType> flgs = getFlags();
-        return flgs.contains(CharacteristicAccessType.NOTIFY) || flgs.contains(CharacteristicAccessType.INDICATE);
+        return canNotify(getFlagsBitField());
     }
 
     @Override
@@ -124,24 +164,89 @@ class CharacteristicGovernorImpl extends AbstractBluetoothObjectGovernor<Charact
 
     @Override
     public boolean isWritable() throws NotReadyException {
-        Set<CharacteristicAccessType> flgs = getFlags();
-        return flgs.contains(CharacteristicAccessType.WRITE)
-            || flgs.contains(CharacteristicAccessType.WRITE_WITHOUT_RESPONSE);
+        return (getFlagsBitField() & (CharacteristicAccessType.WRITE.getBitField()
+            | CharacteristicAccessType.WRITE_WITHOUT_RESPONSE.getBitField())) != 0;
     }
 
     @Override
     public boolean isReadable() throws NotReadyException {
-        return getFlags().contains(CharacteristicAccessType.READ);
+        return (getFlagsBitField() & CharacteristicAccessType.READ.getBitField()) != 0;
     }
 
     @Override
     public byte[] read() throws NotReadyException {
-        return interact("read", Characteristic::readValue);
+        CharacteristicValueCache cache = bluetoothManager.getValueCache();
+        long ttl = cache.getTimeToLive(url);
+        if (ttl <= 0) {
+            return readShared();
+        }
+        byte[] cached = cache.get(url);
+        if (cached != null) {
+            logger.trace("Characteristic value cache hit: {}", url);
+            cacheHits.increment();
+            return cached;
+        }
+        cacheMisses.increment();
+        long version = valueVersion.get();
+        byte[] value = readShared();
+        if (version == valueVersion.get()) {
+            cache.put(url, value, ttl);
+        }
+        return value;
+    }
+
+    @Override
+    public int readInto(ByteBuffer destination) throws NotReadyException {
+        if (bluetoothManager.getValueCache().getTimeToLive(url) > 0) {
+            // cached values are kept as arrays
+            byte[] value = read();
+            destination.put(value);
+            return value.length;
+        }
+        // the value goes straight into the caller's buffer, therefore the read cannot be shared with other callers
+        nativeReads.increment();
+        return interact("read",
+                (Function<Characteristic, Integer>) characteristic -> characteristic.readValue(destination));
     }
 
     @Override
     public boolean write(byte[] data) throws NotReadyException {
-        return interact("write", (Function<Characteristic, Boolean>) characteristic -> characteristic.writeValue(data));
+        try {
+            return interact("write",
+                    (Function<Characteristic, Boolean>) characteristic -> characteristic.writeValue(data));
+        } finally {
+            invalidateValue();
+        }
+    }
+
+    @Override
+    public CompletableFuture<byte[]> readAsync() {
+        return supplyWhenReady(this::read);
+    }
+
+    @Override
+    public CompletableFuture<Boolean> writeAsync(byte[] data) {
+        return supplyWhenReady(() -> write(data));
+    }
+
+    @Override
+    public long getNativeReads() {
+        return nativeReads.sum();
+    }
+
+    @Override
+    public long getCoalescedReads() {
+        return coalescedReads.sum();
+    }
+
+    @Override
+    public long getCacheHits() {
+        return cacheHits.sum();
+    }
+
+    @Override
+    public long getCacheMisses() {
+        return cacheMisses.sum();
     }
 
     @Override
@@ -164,7 +269,7 @@ class CharacteristicGovernorImpl extends AbstractBluetoothObjectGovernor<Charact
                 getURL(), valueNotification == null, canNotify);
         if (valueNotification == null && canNotify) {
             ValueNotification notification = new ValueNotification();
-            characteristic.enableValueNotifications(notification);
+            characteristic.enableValueNotifications((BufferNotification) notification);
             valueNotification = notification;
         }
     }
@@ -179,19 +284,131 @@ class CharacteristicGovernorImpl extends AbstractBluetoothObjectGovernor<Charact
         }
     }
 
-    private static boolean canNotify(Characteristic characteristic) {
-        Set<CharacteristicAccessType> flgs = characteristic.getFlags();
-        return flgs.contains(CharacteristicAccessType.NOTIFY) || flgs.contains(CharacteristicAccessType.INDICATE);
+    private boolean hasValueListeners() {
+        return !valueListeners.isEmpty() || !bufferValueListeners.isEmpty();
     }
 
-    private class ValueNotification implements Notification<byte[]> {
+    private byte[] readShared() {
+        CompletableFuture<byte[]> flight = new CompletableFuture<>();
+        while (!inflightRead.compareAndSet(null, flight)) {
+            CompletableFuture<byte[]> current = inflightRead.get();
+            if (current != null) {
+                // a read is already in progress, sharing its result instead of issuing another native read
+                logger.trace("Joining in-flight read: {}", url);
+                coalescedReads.increment();
+                return join(current);
+            }
+        }
+        try {
+            nativeReads.increment();
+            byte[] value = interact("read", (Function<Characteristic, byte[]>) Characteristic::readValue);
+            flight.complete(value);
+            return value;
+        } catch (RuntimeException ex) {
+            flight.completeExceptionally(ex);
+            throw ex;
+        } finally {
+            inflightRead.compareAndSet(flight, null);
+        }
+    }
+
+    private <T> CompletableFuture<T> supplyWhenReady(Supplier<T> supplier) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        whenReady().whenComplete((ready, error) -> {
+            if (error != null) {
+                future.completeExceptionally(error instanceof CompletionException ? error.getCause() : error);
+                return;
+            }
+            try {
+                bluetoothManager.getCommandLane(url).execute(() -> {
+                    try {
+                        future.complete(supplier.get());
+                    } catch (Exception ex) {
+                        future.completeExceptionally(ex);
+                    }
+                });
+            } catch (RejectedExecutionException ex) {
+                // the lane is shut down, the interaction would never happen
+                future.completeExceptionally(new NotReadyException("Bluetooth manager has been disposed: " + url));
+            }
+        });
+        return future;
+    }
+
+    private void invalidateValue() {
+        valueVersion.incrementAndGet();
+        bluetoothManager.getValueCache().invalidate(url);
+    }
+
+    private static byte[] join(CompletableFuture<byte[]> flight) {
+        try {
+            byte[] value = flight.join();
+            // every caller gets its own copy so that the shared result cannot be modified by others
+            return value != null ? value.clone() : null;
+        } catch (CompletionException ex) {
+            if (ex.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) ex.getCause();
+            }
+            throw ex;
+        }
+    }
+
+    private int getFlagsBitField() {
+        int flags = this.flags;
+        return flags >= 0 ? flags : CharacteristicAccessType.toBitField(
+                interact("getFlags", Characteristic::getFlags));
+    }
+
+    private static boolean canNotify(int flags) {
+        return (flags & (CharacteristicAccessType.NOTIFY.getBitField()
+                | CharacteristicAccessType.INDICATE.getBitField())) != 0;
+    }
+
+    // transports that only supply arrays notify them directly, no buffers are built nor arrays copied for them
+    private class ValueNotification implements BufferNotification, Notification<byte[]> {
         @Override
-        public void notify(byte[] data) {
+        public void notify(byte[] value) {
             logger.trace("Characteristic value changed (notification): {}", url);
+            invalidateValue();
             updateLastChanged();
-            BluetoothManagerUtils.safeForEachError(valueListeners, listener -> listener.changed(data), logger,
+            if (!bufferValueListeners.isEmpty()) {
+                notifyBufferListeners(ByteBuffer.wrap(value).asReadOnlyBuffer());
+            }
+            BluetoothManagerUtils.safeForEachError(valueListeners, listener -> listener.changed(value), logger,
                     "Execution error of a characteristic listener");
         }
+
+        @Override
+        public void notify(ByteBuffer value) {
+            logger.trace("Characteristic value changed (notification): {}", url);
+            invalidateValue();
+            updateLastChanged();
+            if (!bufferValueListeners.isEmpty()) {
+                // listeners share a single read-only view of the transport buffer, no copying involved
+                notifyBufferListeners(value.asReadOnlyBuffer());
+            }
+            if (!valueListeners.isEmpty()) {
+                // transports may reuse their buffers, array based listeners always get their own copy
+                byte[] data = new byte[value.remaining()];
+                value.duplicate().get(data);
+                BluetoothManagerUtils.safeForEachError(valueListeners, listener -> listener.changed(data), logger,
+                        "Execution error of a characteristic listener");
+            }
+        }
+
+        private void notifyBufferListeners(ByteBuffer view) {
+            int position = view.position();
+            int limit = view.limit();
+            for (BufferValueListener listener : bufferValueListeners) {
+                view.limit(limit);
+                view.position(position);
+                try {
+                    listener.changed(view);
+                } catch (Exception ex) {
+                    logger.error("Execution error of a characteristic listener", ex);
+                }
+            }
+        }
     }
 
 }
@@ -0,0 +1,213 @@
+package org.sputnikdev.bluetooth.manager.impl;
+
+/*-
+ * #%L
+ * org.sputnikdev:bluetooth-manager
+ * %%
+ * Copyright (C) 2017 Sputnik Dev
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.sputnikdev.bluetooth.URL;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+import java.util.regex.Pattern;
+
+/**
+ * A bounded LRU cache of characteristic values shared by all characteristic governors of a bluetooth manager.
+ * Lookups and invalidations do not lock, as they happen on notification threads of every characteristic.
+ * Entries are stamped on access, and the least recently used one is looked up and evicted
+ * only when the cache grows over its capacity.
+ *
+ * <p>Characteristics are cached only if a caching policy (time to live) is defined for them, either
+ * by characteristic UUID or by a regular expression matching characteristic URL. UUID policies take precedence
+ * over URL patterns, URL patterns are checked in the order they were defined.
+ *
+ * @author Vlad Kolotov
+ */
+class CharacteristicValueCache {
+
+    static final int DEFAULT_CAPACITY = 256;
+
+    private final LongSupplier clock;
+    private final Map<String, Long> uuidPolicies = new ConcurrentHashMap<>();
+    private final List<PatternPolicy> patternPolicies = new CopyOnWriteArrayList<>();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final Map<URL, Entry> entries = new ConcurrentHashMap<>();
+    private final AtomicLong accessCounter = new AtomicLong();
+    private volatile int capacity = DEFAULT_CAPACITY;
+
+    CharacteristicValueCache() {
+        this(System::nanoTime);
+    }
+
+    CharacteristicValueCache(LongSupplier clock) {
+        this.clock = clock;
+    }
+
+    /**
+     * Sets time to live for values of characteristics with the given UUID.
+     * @param characteristicUUID characteristic UUID
+     * @param ttl time to live, zero or negative duration disables caching
+     */
+    void setPolicy(String characteristicUUID, Duration ttl) {
+        String uuid = characteristicUUID.toLowerCase();
+        if (ttl.isZero() || ttl.isNegative()) {
+            uuidPolicies.remove(uuid);
+        } else {
+            uuidPolicies.put(uuid, ttl.toNanos());
+        }
+    }
+
+    /**
+     * Sets time to live for values of characteristics which URL matches the given pattern.
+     * @param urlPattern characteristic URL regular expression
+     * @param ttl time to live, zero or negative duration disables caching
+     */
+    void setPolicy(Pattern urlPattern, Duration ttl) {
+        patternPolicies.removeIf(policy -> policy.pattern.pattern().equals(urlPattern.pattern()));
+        if (!ttl.isZero() && !ttl.isNegative()) {
+            patternPolicies.add(new PatternPolicy(urlPattern, ttl.toNanos()));
+        }
+    }
+
+    /**
+     * Returns time to live (in nanoseconds) for the given characteristic.
+     * @param url characteristic URL
+     * @return time to live in nanoseconds, 0 if the characteristic must not be cached
+     */
+    long getTimeToLive(URL url) {
+        if (uuidPolicies.isEmpty() && patternPolicies.isEmpty()) {
+            return 0;
+        }
+        String uuid = url.getCharacteristicUUID();
+        Long ttl = uuid != null ? uuidPolicies.get(uuid.toLowerCase()) : null;
+        if (ttl != null) {
+            return ttl;
+        }
+        String urlString = url.toString();
+        for (PatternPolicy policy : patternPolicies) {
+            if (policy.pattern.matcher(urlString).matches()) {
+                return policy.ttl;
+            }
+        }
+        return 0;
+    }
+
+    byte[] get(URL url) {
+        Entry entry = entries.get(url);
+        if (entry != null && clock.getAsLong() - entry.expires >= 0) {
+            entries.remove(url, entry);
+            entry = null;
+        }
+        if (entry == null) {
+            misses.increment();
+            return null;
+        }
+        entry.accessed = accessCounter.incrementAndGet();
+        hits.increment();
+        return entry.value.clone();
+    }
+
+    void put(URL url, byte[] value, long ttl) {
+        if (value == null) {
+            return;
+        }
+        Entry entry = new Entry(value.clone(), clock.getAsLong() + ttl);
+        entry.accessed = accessCounter.incrementAndGet();
+        entries.put(url, entry);
+        if (entries.size() > capacity) {
+            evict();
+        }
+    }
+
+    void invalidate(URL url) {
+        if (!entries.isEmpty()) {
+            entries.remove(url);
+        }
+    }
+
+    void clear() {
+        entries.clear();
+    }
+
+    int size() {
+        return entries.size();
+    }
+
+    void setCapacity(int capacity) {
+        if (capacity < 0) {
+            throw new IllegalArgumentException("Capacity must not be negative: " + capacity);
+        }
+        this.capacity = capacity;
+        evict();
+    }
+
+    long getHits() {
+        return hits.sum();
+    }
+
+    long getMisses() {
+        return misses.sum();
+    }
+
+    // only writers which overflow the cache get here, they evict least recently used entries one by one
+    private synchronized void evict() {
+        while (entries.size() > capacity) {
+            Map.Entry<URL, Entry> eldest = null;
+            for (Map.Entry<URL, Entry> entry : entries.entrySet()) {
+                if (eldest == null || entry.getValue().accessed < eldest.getValue().accessed) {
+                    eldest = entry;
+                }
+            }
+            if (eldest == null) {
+                return;
+            }
+            entries.remove(eldest.getKey(), eldest.getValue());
+        }
+    }
+
+    private static final class Entry {
+
+        private final byte[] value;
+        private final long expires;
+        private volatile long accessed;
+
+        private Entry(byte[] value, long expires) {
+            this.value = value;
+            this.expires = expires;
+        }
+    }
+
+    private static final class PatternPolicy {
+
+        private final Pattern pattern;
+        private final long ttl;
+
+        private PatternPolicy(Pattern pattern, long ttl) {
+            this.pattern = pattern;
+            this.ttl = ttl;
+        }
+    }
+
+}
@@ -222,9 +222,6 @@ class CombinedAdapterGovernorImpl implements AdapterGovernor, CombinedGovernor,
     public void adapterLost(URL address) { /* do nothing */ }
 
     private void registerGovernor(URL url) {
-        if (governorsCount.get() > 63) {
-            throw new IllegalStateException("Shared Device Governor can only span upto 63 device governors.");
-        }
         if (url.isAdapter() && !url.equals(this.url)) {
             governors.computeIfAbsent(url, newUrl -> {
                 AdapterGovernor deviceGovernor = bluetoothManager.getAdapterGovernor(url);
@@ -26,6 +26,7 @@ import org.sputnikdev.bluetooth.URL;
 import org.sputnikdev.bluetooth.manager.BluetoothGovernor;
 import org.sputnikdev.bluetooth.manager.BluetoothObjectType;
 import org.sputnikdev.bluetooth.manager.BluetoothObjectVisitor;
+import org.sputnikdev.bluetooth.manager.BufferValueListener;
 import org.sputnikdev.bluetooth.manager.CharacteristicGovernor;
 import org.sputnikdev.bluetooth.manager.CombinedGovernor;
 import org.sputnikdev.bluetooth.manager.DeviceGovernor;
@@ -35,9 +36,11 @@ import org.sputnikdev.bluetooth.manager.NotReadyException;
 import org.sputnikdev.bluetooth.manager.ValueListener;
 import org.sputnikdev.bluetooth.manager.transport.CharacteristicAccessType;
 
+import java.nio.ByteBuffer;
 import java.util.Date;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CopyOnWriteArrayList;
 
 /**
@@ -53,7 +56,9 @@ class CombinedCharacteristicGovernorImpl
     private final URL url;
     private CharacteristicGovernor delegate;
     private final List<ValueListener> valueListeners = new CopyOnWriteArrayList<>();
+    private final List<BufferValueListener> bufferValueListeners = new CopyOnWriteArrayList<>();
     private final List<GovernorListener> governorListeners = new CopyOnWriteArrayList<>();
+    private final List<CompletableFuture<Void>> readinessFutures = new CopyOnWriteArrayList<>();
     private Date lastActivity;
     private final ManagerListener delegateListener = new DelegatesListener();
 
@@ -92,11 +97,45 @@ class CombinedCharacteristicGovernorImpl
         return getDelegate().read();
     }
 
+    @Override
+    public int readInto(ByteBuffer destination) throws NotReadyException {
+        return getDelegate().readInto(destination);
+    }
+
     @Override
     public boolean write(byte[] data) throws NotReadyException {
         return getDelegate().write(data);
     }
 
+    @Override
+    public CompletableFuture<Void> whenReady() {
+        CharacteristicGovernor delegate = this.delegate;
+        if (delegate != null) {
+            return delegate.whenReady();
+        }
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        readinessFutures.add(future);
+        future.whenComplete((result, error) -> readinessFutures.remove(future));
+        // the delegate might have been installed in the meantime
+        if (this.delegate != null) {
+            future.complete(null);
+        } else {
+            bluetoothManager.scheduleReadinessTimeout(future, url);
+            bluetoothManager.scheduleUpdate(this);
+        }
+        return future;
+    }
+
+    @Override
+    public CompletableFuture<byte[]> readAsync() {
+        return whenReady().thenCompose(ready -> getDelegate().readAsync());
+    }
+
+    @Override
+    public CompletableFuture<Boolean> writeAsync(byte[] data) {
+        return whenReady().thenCompose(ready -> getDelegate().writeAsync(data));
+    }
+
     @Override
     public void addValueListener(ValueListener valueListener) {
         valueListeners.add(valueListener);
@@ -115,6 +154,24 @@ class CombinedCharacteristicGovernorImpl
         }
     }
 
+    @Override
+    public void addBufferValueListener(BufferValueListener valueListener) {
+        bufferValueListeners.add(valueListener);
+        CharacteristicGovernor delegate = this.delegate;
+        if (delegate != null) {
+            delegate.addBufferValueListener(valueListener);
+        }
+    }
+
+    @Override
+    public void removeBufferValueListener(BufferValueListener valueListener) {
+        bufferValueListeners.remove(valueListener);
+        CharacteristicGovernor delegate = this.delegate;
+        if (delegate != null) {
+            delegate.removeBufferValueListener(valueListener);
+        }
+    }
+
     @Override
     public URL getURL() {
         return url;
@@ -164,9 +221,10 @@ class CombinedCharacteristicGovernorImpl
     public void init() {
         bluetoothManager.addManagerListener(delegateListener);
 
+        CanonicalURLs canonicalURLs = bluetoothManager.getCanonicalURLs();
         bluetoothManager.getRegisteredGovernors().stream()
                 .filter(registeredURL -> !COMBINED_ADDRESS.equals(registeredURL.getAdapterAddress())
-                        && registeredURL.copyWithProtocol(null).copyWithAdapter(COMBINED_ADDRESS).equals(url))
+                        && canonicalURLs.combined(registeredURL).equals(url))
                 .map(registeredURL -> bluetoothManager.getGovernor(registeredURL))
                 .filter(BluetoothGovernor::isReady)
                 .reduce((a, b) -> { throw new IllegalStateException("multiple 'ready' characteristics found"); })
@@ -195,6 +253,9 @@ class CombinedCharacteristicGovernorImpl
         reset();
         governorListeners.clear();
         valueListeners.clear();
+        bufferValueListeners.clear();
+        readinessFutures.forEach(future -> future.completeExceptionally(
+                new NotReadyException("Combined characteristic governor has been disposed: " + url)));
     }
 
     private void installDelegate(CharacteristicGovernor delegate) {
@@ -202,11 +263,13 @@ class CombinedCharacteristicGovernorImpl
             this.delegate = delegate;
             governorListeners.forEach(delegate::addGovernorListener);
             valueListeners.forEach(delegate::addValueListener);
+            bufferValueListeners.forEach(delegate::addBufferValueListener);
             lastActivity = delegate.getLastActivity();
         }
         if (delegate.isReady()) {
             BluetoothManagerUtils.safeForEachError(governorListeners, listener -> listener.ready(true), logger,
                     "Execution error of a governor listener: ready");
+            readinessFutures.forEach(future -> future.complete(null));
         }
         BluetoothManagerUtils.safeForEachError(governorListeners,
                 listener -> listener.lastUpdatedChanged(lastActivity),
@@ -219,6 +282,7 @@ class CombinedCharacteristicGovernorImpl
             synchronized (delegateListener) {
                 governorListeners.forEach(delegate::removeGovernorListener);
                 valueListeners.forEach(delegate::removeValueListener);
+                bufferValueListeners.forEach(delegate::removeBufferValueListener);
                 lastActivity = delegate.getLastActivity();
             }
         }
@@ -247,8 +311,9 @@ class CombinedCharacteristicGovernorImpl
     private class DelegatesListener implements ManagerListener {
         @Override
         public void ready(BluetoothGovernor governor, boolean isReady) {
+            CanonicalURLs canonicalURLs = bluetoothManager.getCanonicalURLs();
             if (governor instanceof CharacteristicGovernorImpl
-                    && governor.getURL().copyWithProtocol(null).copyWithAdapter(COMBINED_ADDRESS).equals(url)) {
+                    && canonicalURLs.combined(canonicalURLs.protocolLess(governor.getURL())).equals(url)) {
                 if (isReady) {
                     installDelegate((CharacteristicGovernor) governor);
                 } else {
@@ -42,17 +42,14 @@ import org.sputnikdev.bluetooth.manager.NotReadyException;
 
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.Comparator;
 import java.util.Date;
 import java.util.List;
 import java.util.Map;
-import java.util.SortedSet;
-import java.util.TreeSet;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArrayList;
-import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
-import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
@@ -64,6 +61,9 @@ class CombinedDeviceGovernorImpl implements DeviceGovernor, CombinedDeviceGovern
 
     // when RSSI reading is deemed to be stale for the nearest adapter calculation
     private static final int STALE_TIMEOUT = 10000;
+    private static final int INITIAL_HANDLERS_CAPACITY = 8;
+    // a new nearest adapter must be closer than the current one by this ratio
+    static final double DEFAULT_NEAREST_ADAPTER_HYSTERESIS = 0.1;
 
     private Logger logger = LoggerFactory.getLogger(CombinedDeviceGovernorImpl.class);
 
@@ -72,6 +72,9 @@ class CombinedDeviceGovernorImpl implements DeviceGovernor, CombinedDeviceGovern
 
     private final AtomicInteger governorsCount = new AtomicInteger();
     private final Map<URL, DeviceGovernorHandler> governors = new ConcurrentHashMap<>();
+    // handlers indexed by their bitmap index, the array grows (copy on write) when new delegates get registered
+    private volatile AtomicReferenceArray<DeviceGovernorHandler> handlers =
+            new AtomicReferenceArray<>(INITIAL_HANDLERS_CAPACITY);
     private final AdapterDiscoveryListener delegateRegistrar = adapter -> registerDelegate((DiscoveredAdapter) adapter);
 
     // proxy listeners
@@ -92,7 +95,7 @@ class CombinedDeviceGovernorImpl implements DeviceGovernor, CombinedDeviceGovern
     private String name;
     private String alias;
     private int onlineTimeout = DeviceGovernorImpl.DEFAULT_ONLINE_TIMEOUT;
-    private short rssi;
+    private volatile short rssi;
     private KalmanFilterProxy rssiFilter = new KalmanFilterProxy();
     private boolean rssiFilteringEnabled = true;
     private long rssiReportingRate = DeviceGovernorImpl.DEFAULT_RSSI_REPORTING_RATE;
@@ -101,9 +104,8 @@ class CombinedDeviceGovernorImpl implements DeviceGovernor, CombinedDeviceGovern
     private Date lastChanged;
 
     // some specifics for the nearest adapter detection
-    private final SortedSet<DeviceGovernorHandler> sortedByDistanceGovernors = new TreeSet<>(new DistanceComparator());
-    private DeviceGovernor nearest;
-    private final ReentrantLock rssiLock = new ReentrantLock();
+    private final AtomicReference<DeviceGovernorHandler> nearest = new AtomicReference<>();
+    private volatile double nearestAdapterHysteresis = DEFAULT_NEAREST_ADAPTER_HYSTERESIS;
 
     // controlling fields
     private boolean connectionControl;
@@ -192,13 +194,13 @@ class CombinedDeviceGovernorImpl implements DeviceGovernor, CombinedDeviceGovern
 
     @Override
     public Map<Short, byte[]> getManufacturerData() {
-        DeviceGovernor governor = nearest;
+        DeviceGovernor governor = getNearest();
         return governor != null ? governor.getManufacturerData() : Collections.emptyMap();
     }
 
     @Override
     public Map<URL, byte[]> getServiceData() {
-        DeviceGovernor governor = nearest;
+        DeviceGovernor governor = getNearest();
         return governor != null ? governor.getServiceData() : Collections.emptyMap();
     }
 
@@ -229,8 +231,10 @@ class CombinedDeviceGovernorImpl implements DeviceGovernor, CombinedDeviceGovern
         logger.trace("Finding connection target: {} : {}", url, connectionStrategy);
         switch (connectionStrategy) {
             case NEAREST_ADAPTER:
-                logger.trace("Nearest connection target: {}", nearest != null ? nearest.getURL() : null);
-                return nearest;
+                DeviceGovernor nearestGovernor = getNearest();
+                logger.trace("Nearest connection target: {}",
+                        nearestGovernor != null ? nearestGovernor.getURL() : null);
+                return nearestGovernor;
             case PREFERRED_ADAPTER:
                 logger.trace("Preferred adapter: {}", preferredAdapter);
                 if (preferredAdapter != null) {
@@ -287,8 +291,8 @@ class CombinedDeviceGovernorImpl implements DeviceGovernor, CombinedDeviceGovern
 
     @Override
     public long getLastAdvertised() {
-        DeviceGovernor nearest = this.nearest;
-        return nearest.getLastAdvertised();
+        DeviceGovernor governor = getNearest();
+        return governor != null ? governor.getLastAdvertised() : 0;
     }
 
     @Override
@@ -322,13 +326,13 @@ class CombinedDeviceGovernorImpl implements DeviceGovernor, CombinedDeviceGovern
 
     @Override
     public double getEstimatedDistance() {
-        DeviceGovernor governor = nearest;
+        DeviceGovernor governor = getNearest();
         return governor != null ? governor.getEstimatedDistance() : 0.0;
     }
 
     @Override
     public URL getLocation() {
-        DeviceGovernor governor = nearest;
+        DeviceGovernor governor = getNearest();
         return !isConnected() && governor != null ? governor.getURL().getAdapterURL() : null;
     }
 
@@ -412,6 +416,7 @@ class CombinedDeviceGovernorImpl implements DeviceGovernor, CombinedDeviceGovern
 
     @Override
     public void update() {
+        selectNearest();
         updateConnectionTarget();
     }
 
@@ -425,10 +430,11 @@ class CombinedDeviceGovernorImpl implements DeviceGovernor, CombinedDeviceGovern
         bluetoothManager.removeAdapterDiscoveryListener(delegateRegistrar);
         governors.values().forEach(DeviceGovernorHandler::dispose);
         governors.clear();
+        handlers = new AtomicReferenceArray<>(INITIAL_HANDLERS_CAPACITY);
         governorListeners.clear();
         genericBluetoothDeviceListeners.clear();
         bluetoothSmartDeviceListeners.clear();
-        sortedByDistanceGovernors.clear();
+        nearest.set(null);
         logger.debug("Combined device governor disposed: {}", url);
     }
 
@@ -489,6 +495,20 @@ class CombinedDeviceGovernorImpl implements DeviceGovernor, CombinedDeviceGovern
         this.preferredAdapter = preferredAdapter;
     }
 
+    @Override
+    public double getNearestAdapterHysteresis() {
+        return nearestAdapterHysteresis;
+    }
+
+    @Override
+    public void setNearestAdapterHysteresis(double hysteresis) {
+        if (hysteresis < 0 || hysteresis >= 1) {
+            throw new IllegalArgumentException("Hysteresis must be between 0 (inclusive) and 1 (exclusive): "
+                    + hysteresis);
+        }
+        nearestAdapterHysteresis = hysteresis;
+    }
+
     @Override
     public URL getConnectedAdapter() {
         DeviceGovernor deviceGovernor = getGovernor(connected.getUniqueIndex());
@@ -496,8 +516,93 @@ class CombinedDeviceGovernorImpl implements DeviceGovernor, CombinedDeviceGovern
     }
 
     private DeviceGovernor getGovernor(int index) {
-        return governors.values().stream().filter(handler -> handler.index == index)
-                .map(handler ->handler.delegate).findFirst().orElse(null);
+        AtomicReferenceArray<DeviceGovernorHandler> current = handlers;
+        if (index < 0 || index >= current.length()) {
+            return null;
+        }
+        DeviceGovernorHandler handler = current.get(index);
+        return handler != null ? handler.delegate : null;
+    }
+
+    private DeviceGovernor getNearest() {
+        DeviceGovernorHandler handler = nearest.get();
+        return handler != null ? handler.delegate : null;
+    }
+
+    /**
+     * Selects the nearest delegate: the one with the minimal estimated distance among the delegates which
+     * advertised recently (or among all available delegates if none of them did). The current nearest delegate
+     * is replaced only if it has become unavailable or stale, or the new one is closer by the hysteresis ratio,
+     * so that the nearest adapter does not flap when distances are similar. If none of the delegates is available,
+     * the nearest delegate is cleared. Never blocks.
+     * @return the nearest delegate
+     */
+    private DeviceGovernorHandler selectNearest() {
+        while (true) {
+            long now = System.currentTimeMillis();
+            DeviceGovernorHandler current = nearest.get();
+            DeviceGovernorHandler candidate = findNearest(now);
+            if (candidate == null && current != null && !current.isAvailable()) {
+                // none of the delegates is available, the device has no location anymore
+                if (nearest.compareAndSet(current, null)) {
+                    logger.debug("Nearest delegate is not available anymore: {}", current.delegate.getURL());
+                    return null;
+                }
+                continue;
+            }
+            if (candidate == null || candidate == current
+                    || current != null && !isNearestSwitchRequired(current, candidate, now)) {
+                return current;
+            }
+            if (nearest.compareAndSet(current, candidate)) {
+                logger.debug("Nearest delegate changed (current / new): {} / {}",
+                        current != null ? current.delegate.getURL() : null, candidate.delegate.getURL());
+                return candidate;
+            }
+        }
+    }
+
+    private DeviceGovernorHandler findNearest(long now) {
+        AtomicReferenceArray<DeviceGovernorHandler> current = handlers;
+        DeviceGovernorHandler nearestFresh = null;
+        DeviceGovernorHandler nearestAvailable = null;
+        for (int i = 0; i < current.length(); i++) {
+            DeviceGovernorHandler handler = current.get(i);
+            if (handler == null || !handler.isAvailable()) {
+                continue;
+            }
+            double distance = handler.distance;
+            if (nearestAvailable == null || distance < nearestAvailable.distance) {
+                nearestAvailable = handler;
+            }
+            if (!handler.isStale(now) && (nearestFresh == null || distance < nearestFresh.distance)) {
+                nearestFresh = handler;
+            }
+        }
+        return nearestFresh != null ? nearestFresh : nearestAvailable;
+    }
+
+    private boolean isNearestSwitchRequired(DeviceGovernorHandler current, DeviceGovernorHandler candidate,
+                                            long now) {
+        if (!current.isAvailable() || current.isStale(now) && !candidate.isStale(now)) {
+            return true;
+        }
+        return candidate.distance < current.distance * (1 - nearestAdapterHysteresis);
+    }
+
+    private void addHandler(DeviceGovernorHandler handler) {
+        // only called by delegate registration which is synchronized
+        AtomicReferenceArray<DeviceGovernorHandler> current = handlers;
+        if (handler.index >= current.length()) {
+            AtomicReferenceArray<DeviceGovernorHandler> grown =
+                    new AtomicReferenceArray<>(Math.max(current.length() * 2, handler.index + 1));
+            for (int i = 0; i < current.length(); i++) {
+                grown.set(i, current.get(i));
+            }
+            current = grown;
+            handlers = grown;
+        }
+        current.set(handler.index, handler);
     }
 
     private void registerDelegate(DiscoveredAdapter adapter) {
@@ -511,15 +616,12 @@ class CombinedDeviceGovernorImpl implements DeviceGovernor, CombinedDeviceGovern
     private void registerDelegate(URL url) {
         if (url.isDevice() && this.url.getDeviceAddress().equals(url.getDeviceAddress())
                 && !COMBINED_ADDRESS.equals(url.getAdapterAddress())) {
-            if (governorsCount.get() > 63) {
-                throw new IllegalStateException("Combined Device Governor can only span up to 63 device governors "
-                        + "(adapters).");
-            }
             governors.computeIfAbsent(url.copyWithProtocol(null), newUrl -> {
                 DeviceGovernor deviceGovernor = bluetoothManager.getDeviceGovernor(url);
                 int index = governorsCount.getAndIncrement();
                 logger.debug("Registering a new delegate: {} : {}", newUrl, index);
                 DeviceGovernorHandler handler = new DeviceGovernorHandler(deviceGovernor, index);
+                addHandler(handler);
                 handler.init();
                 return handler;
             });
@@ -547,8 +649,9 @@ class CombinedDeviceGovernorImpl implements DeviceGovernor, CombinedDeviceGovern
 
         private final DeviceGovernor delegate;
         private final int index;
-        private double distance = Double.MAX_VALUE;
-        private long lastAdvertised;
+        // distance and timestamp of the last RSSI reading, Double.MAX_VALUE if the delegate is not available
+        private volatile double distance = Double.MAX_VALUE;
+        private volatile long lastAdvertised;
         private boolean inited;
 
         private DeviceGovernorHandler(DeviceGovernor delegate, int index) {
@@ -665,11 +768,12 @@ class CombinedDeviceGovernorImpl implements DeviceGovernor, CombinedDeviceGovern
         @Override
         public void serviceDataChanged(Map<URL, byte[]> serviceData) {
             logger.debug("Services data changed (listener): {} : {} : {}",
-                    url, serviceData.size(), delegate == nearest);
-            if (delegate == nearest) {
+                    url, serviceData.size(), this == nearest.get());
+            if (this == nearest.get()) {
+                CanonicalURLs canonicalURLs = bluetoothManager.getCanonicalURLs();
                 BluetoothManagerUtils.safeForEachError(bluetoothSmartDeviceListeners,
                         listener -> listener.serviceDataChanged(serviceData.entrySet().stream()
-                                .collect(Collectors.toMap(entry -> entry.getKey().copyWithAdapter(COMBINED_ADDRESS),
+                                .collect(Collectors.toMap(entry -> canonicalURLs.combined(entry.getKey()),
                                         Map.Entry::getValue))),
                         logger, "Execution error of a service resolved listener");
             }
@@ -678,8 +782,8 @@ class CombinedDeviceGovernorImpl implements DeviceGovernor, CombinedDeviceGovern
         @Override
         public void manufacturerDataChanged(Map<Short, byte[]> manufacturerData) {
             logger.debug("Manufacturer data changed (listener): {} : {} : {}",
-                    url, manufacturerData.size(), delegate == nearest);
-            if (delegate == nearest) {
+                    url, manufacturerData.size(), this == nearest.get());
+            if (this == nearest.get()) {
                 BluetoothManagerUtils.safeForEachError(bluetoothSmartDeviceListeners,
                         listener -> listener.manufacturerDataChanged(manufacturerData),
                         logger, "Execution error of a service resolved listener");
@@ -693,7 +797,7 @@ class CombinedDeviceGovernorImpl implements DeviceGovernor, CombinedDeviceGovern
 
         @Override
         public void offline() {
-            sortedByDistanceGovernors.remove(this);
+            markUnavailable();
             notifyIfChangedOnline(false);
         }
 
@@ -704,26 +808,10 @@ class CombinedDeviceGovernorImpl implements DeviceGovernor, CombinedDeviceGovern
 
         @Override
         public void rssiChanged(short newRssi) {
-            try {
-                if (rssiLock.tryLock(50, TimeUnit.MILLISECONDS)) {
-                    try {
-                        sortedByDistanceGovernors.remove(this);
-                        lastAdvertised = delegate.getLastAdvertised();
-                        distance = delegate.getEstimatedDistance();
-                        sortedByDistanceGovernors.add(this);
-                        DeviceGovernor newNearest = sortedByDistanceGovernors.first().delegate;
-                        logger.debug("Calculating nearest delegate (current / new): {} / {}",
-                                nearest != null ? nearest.getURL() : null, newNearest.getURL());
-                        nearest = newNearest;
-                        if (delegate == nearest) {
-                            updateRssi(newRssi);
-                        }
-                    } finally {
-                        rssiLock.unlock();
-                    }
-                }
-            } catch (InterruptedException ignore) {
-                logger.debug("Could not acquire a lock to update RSSI: {}", delegate.getURL());
+            lastAdvertised = delegate.getLastAdvertised();
+            distance = delegate.getEstimatedDistance();
+            if (selectNearest() == this) {
+                updateRssi(newRssi);
             }
         }
 
@@ -733,7 +821,7 @@ class CombinedDeviceGovernorImpl implements DeviceGovernor, CombinedDeviceGovern
             if (isReady) {
                 initUnsafe();
             } else {
-                sortedByDistanceGovernors.remove(this);
+                markUnavailable();
             }
             notifyIfChangedReady(isReady);
         }
@@ -743,6 +831,21 @@ class CombinedDeviceGovernorImpl implements DeviceGovernor, CombinedDeviceGovern
             updateLastUpdated(lastActivity);
         }
 
+        private boolean isAvailable() {
+            return distance != Double.MAX_VALUE;
+        }
+
+        private boolean isStale(long now) {
+            return now - lastAdvertised > STALE_TIMEOUT;
+        }
+
+        private void markUnavailable() {
+            distance = Double.MAX_VALUE;
+            if (this == nearest.get()) {
+                selectNearest();
+            }
+        }
+
         private void dispose() {
             logger.debug("Disposing delegate: {}", delegate.getURL());
             delegate.removeBluetoothSmartDeviceListener(this);
@@ -797,6 +900,7 @@ class CombinedDeviceGovernorImpl implements DeviceGovernor, CombinedDeviceGovern
         private void notifyServicesResolved(List<GattService> services) {
             logger.debug("Notify service resolved: {} : {} : {}",
                     url, bluetoothSmartDeviceListeners.size(), services.size());
+            CanonicalURLs canonicalURLs = bluetoothManager.getCanonicalURLs();
             List<GattService> combinedServices = new ArrayList<>(services.size());
             services.forEach(service -> {
                 List<GattCharacteristic> combinedCharacteristics =
@@ -804,13 +908,13 @@ class CombinedDeviceGovernorImpl implements DeviceGovernor, CombinedDeviceGovern
 
                 service.getCharacteristics().forEach(characteristic -> {
                     GattCharacteristic combinedCharacteristic = new GattCharacteristic(
-                            characteristic.getURL().copyWithProtocol(null).copyWithAdapter(COMBINED_ADDRESS),
+                            canonicalURLs.combined(canonicalURLs.protocolLess(characteristic.getURL())),
                             characteristic.getFlags());
                     combinedCharacteristics.add(combinedCharacteristic);
                 });
 
                 GattService combinedService = new GattService(
-                        service.getURL().copyWithProtocol(null).copyWithAdapter(COMBINED_ADDRESS),
+                        canonicalURLs.combined(canonicalURLs.protocolLess(service.getURL())),
                         combinedCharacteristics);
                 combinedServices.add(combinedService);
             });
@@ -849,18 +953,4 @@ class CombinedDeviceGovernorImpl implements DeviceGovernor, CombinedDeviceGovern
                     .forEach(consumer);
         }
     }
-
-    private class DistanceComparator implements Comparator<DeviceGovernorHandler> {
-
-        @Override
-        public int compare(DeviceGovernorHandler first, DeviceGovernorHandler second) {
-            long current = System.currentTimeMillis();
-            boolean firstStale = current - first.lastAdvertised > STALE_TIMEOUT;
-            boolean secondStale = current - second.lastAdvertised > STALE_TIMEOUT;
-            double firstWeighedValue = first.distance * (firstStale ? 1 : 1000);
-            double secondWeighedValue = second.distance * (secondStale ? 1 : 1000);
-
-            return Double.compare(firstWeighedValue, secondWeighedValue);
-        }
-    }
 }
@@ -0,0 +1,194 @@
+package org.sputnikdev.bluetooth.manager.impl;
+
+/*-
+ * #%L
+ * org.sputnikdev:bluetooth-manager
+ * %%
+ * Copyright (C) 2017 Sputnik Dev
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.sputnikdev.bluetooth.URL;
+import org.sputnikdev.bluetooth.manager.CommandLaneStatistics;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A serial executor which runs commands for a single bluetooth adapter in a FIFO order, one at a time.
+ * Commands are executed by a shared executor, so that callers never block waiting for the adapter
+ * and different adapters (lanes) are served in parallel.
+ *
+ * <p>Once the shared executor is shut down, the lane rejects new commands with {@link RejectedExecutionException},
+ * commands that had been accepted before that are run by the thread which found the executor shut down.
+ *
+ * @author Vlad Kolotov
+ */
+class CommandLane implements Executor, CommandLaneStatistics {
+
+    private Logger logger = LoggerFactory.getLogger(CommandLane.class);
+
+    private final URL url;
+    private final Executor executor;
+    private final Queue<Command> commands = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean running = new AtomicBoolean();
+    private volatile boolean terminated;
+
+    private final AtomicInteger queueDepth = new AtomicInteger();
+    private final AtomicInteger maxQueueDepth = new AtomicInteger();
+    private final LongAdder executedCommands = new LongAdder();
+    private final LongAdder totalWaitTime = new LongAdder();
+    private final AtomicLong maxWaitTime = new AtomicLong();
+
+    CommandLane(URL url, Executor executor) {
+        this.url = url;
+        this.executor = executor;
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        if (terminated) {
+            throw new RejectedExecutionException("Command lane is shut down: " + url);
+        }
+        Command queued = new Command(command);
+        commands.add(queued);
+        int depth = queueDepth.incrementAndGet();
+        maxQueueDepth.accumulateAndGet(depth, Math::max);
+        try {
+            schedule();
+        } catch (RejectedExecutionException ex) {
+            // the command might have been taken by a drain already, then it is not rejected
+            boolean rejected = commands.remove(queued);
+            if (rejected) {
+                queueDepth.decrementAndGet();
+            }
+            terminate();
+            if (rejected) {
+                throw ex;
+            }
+        }
+    }
+
+    @Override
+    public URL getURL() {
+        return url;
+    }
+
+    @Override
+    public int getQueueDepth() {
+        return queueDepth.get();
+    }
+
+    @Override
+    public int getMaxQueueDepth() {
+        return maxQueueDepth.get();
+    }
+
+    @Override
+    public long getExecutedCommands() {
+        return executedCommands.sum();
+    }
+
+    @Override
+    public double getAverageWaitTime() {
+        long executed = executedCommands.sum();
+        return executed > 0 ? (double) totalWaitTime.sum() / executed / TimeUnit.MILLISECONDS.toNanos(1) : 0;
+    }
+
+    @Override
+    public long getMaxWaitTime() {
+        return TimeUnit.NANOSECONDS.toMillis(maxWaitTime.get());
+    }
+
+    @Override
+    public String toString() {
+        return "[Command lane] " + url + " [" + queueDepth.get() + "]";
+    }
+
+    private void schedule() {
+        if (!commands.isEmpty() && running.compareAndSet(false, true)) {
+            try {
+                executor.execute(this::drain);
+            } catch (RejectedExecutionException ex) {
+                running.set(false);
+                throw ex;
+            }
+        }
+    }
+
+    private void drain() {
+        try {
+            runCommands();
+        } finally {
+            running.set(false);
+            // a command might have been added after the queue was found empty
+            try {
+                schedule();
+            } catch (RejectedExecutionException ex) {
+                terminate();
+            }
+        }
+    }
+
+    private void terminate() {
+        terminated = true;
+        while (!commands.isEmpty() && running.compareAndSet(false, true)) {
+            logger.warn("Command lane executor is shut down, running accepted commands in the current thread: {}",
+                    url);
+            try {
+                runCommands();
+            } finally {
+                running.set(false);
+            }
+        }
+    }
+
+    private void runCommands() {
+        Command command;
+        while ((command = commands.poll()) != null) {
+            queueDepth.decrementAndGet();
+            long waitTime = System.nanoTime() - command.submitted;
+            totalWaitTime.add(waitTime);
+            maxWaitTime.accumulateAndGet(waitTime, Math::max);
+            try {
+                command.delegate.run();
+            } catch (Exception ex) {
+                logger.warn("Error occurred while executing command: " + url, ex);
+            } finally {
+                executedCommands.increment();
+            }
+        }
+    }
+
+    private static final class Command {
+
+        private final Runnable delegate;
+        private final long submitted = System.nanoTime();
+
+        private Command(Runnable delegate) {
+            this.delegate = delegate;
+        }
+    }
+
+}
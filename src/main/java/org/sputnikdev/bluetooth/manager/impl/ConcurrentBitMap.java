@@ -20,17 +20,38 @@
 
 package org.sputnikdev.bluetooth.manager.impl;
 
-import java.util.concurrent.atomic.AtomicLong;
-import java.util.function.LongUnaryOperator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
- * A utility class that can accommodate 63 boolean flags. It is similar to {@link java.util.BitSet}
- * but synchronized and provides some "atomic" utility methods for tracking changes.
+ * A utility class that can accommodate any number of boolean flags. It is similar to {@link java.util.BitSet}
+ * but thread safe and provides some "atomic" utility methods for tracking changes.
+ *
+ * <p>The bitmap state (words, number of set flags and a sequence number) is an immutable snapshot which is replaced
+ * with CAS, so that state transitions never block. Each transition gets the next sequence number, transition
+ * callbacks are delivered strictly in the sequence order and never concurrently, but outside of any lock:
+ * the thread which gets to deliver callbacks also delivers callbacks queued by other threads meanwhile.
+ * Therefore a callback can be run by a thread other than the one that caused the transition.
  * @author Vlad Kolotov
  */
 class ConcurrentBitMap {
 
-    private final AtomicLong bits = new AtomicLong();
+    private static final Runnable NO_CALLBACK = () -> { };
+
+    private Logger logger = LoggerFactory.getLogger(ConcurrentBitMap.class);
+
+    private final AtomicReference<State> state = new AtomicReference<>(new State(new long[1], 0, 0));
+
+    // callbacks waiting for delivery, keyed by sequence number
+    private final Map<Long, Runnable> pending = new ConcurrentHashMap<>();
+    private final AtomicInteger deliveryRequests = new AtomicInteger();
+    // owned by the delivering thread
+    private long nextDelivery = 1;
 
     /**
      * Sets a new cumulative state for the bitmap field.
@@ -52,38 +73,33 @@ class ConcurrentBitMap {
     }
 
     /**
-     * Sets a new exclusive state for the bitmap field.
+     * Sets a new cumulative state for the bitmap field.
      * @param index index of the new state
      * @param newState value of the new state
+     * @param changed triggered if the overall state changes
+     * @param notChanged triggered if the overall state does not change
      */
-    void exclusiveSet(int index, boolean newState) {
-        exclusiveSet(index, newState, null, null);
+    void cumulativeSet(int index, boolean newState, Runnable changed, Runnable notChanged) {
+        set(index, newState, false, changed, notChanged);
     }
 
     /**
      * Sets a new exclusive state for the bitmap field.
      * @param index index of the new state
      * @param newState value of the new state
-     * @param changed triggered if the overall state changes
      */
-    void exclusiveSet(int index, boolean newState, Runnable changed) {
-        exclusiveSet(index, newState, changed, null);
+    void exclusiveSet(int index, boolean newState) {
+        exclusiveSet(index, newState, null, null);
     }
 
     /**
-     * Sets a new cumulative state for the bitmap field.
+     * Sets a new exclusive state for the bitmap field.
      * @param index index of the new state
      * @param newState value of the new state
      * @param changed triggered if the overall state changes
-     * @param notChanged triggered if the overall state does not change
      */
-    void cumulativeSet(int index, boolean newState, Runnable changed, Runnable notChanged) {
-        if (index < 0 || index > 63) {
-            throw new IllegalStateException("Invalid index, must be between 0 and 63: " + index);
-        }
-        set(current -> {
-            return newState ? current | (1 << index) : current & ~(1 << index);
-        }, changed, notChanged);
+    void exclusiveSet(int index, boolean newState, Runnable changed) {
+        exclusiveSet(index, newState, changed, null);
     }
 
     /**
@@ -94,12 +110,7 @@ class ConcurrentBitMap {
      * @param notChanged triggered if the overall state does not change
      */
     void exclusiveSet(int index, boolean newState, Runnable changed, Runnable notChanged) {
-        if (index < 0 || index > 63) {
-            throw new IllegalStateException("Invalid index, must be between 0 and 63: " + index);
-        }
-        set(current -> {
-            return newState ? (1 << index) : current & ~(1 << index);
-        }, changed, notChanged);
+        set(index, newState, newState, changed, notChanged);
     }
 
     /**
@@ -107,7 +118,32 @@ class ConcurrentBitMap {
      * @return true if any of bits is set to 1, false otherwise
      */
     boolean get() {
-        return bits.get() > 0;
+        return state.get().population > 0;
+    }
+
+    /**
+     * Returns state of the given bit.
+     * @param index bit index
+     * @return true if the bit is set to 1, false otherwise
+     */
+    boolean get(int index) {
+        return index >= 0 && state.get().get(index);
+    }
+
+    /**
+     * Returns the number of bits set to 1.
+     * @return the number of bits set to 1
+     */
+    int cardinality() {
+        return state.get().population;
+    }
+
+    /**
+     * Returns the sequence number of the last state change.
+     * @return sequence number
+     */
+    long getSequence() {
+        return state.get().sequence;
     }
 
     /**
@@ -116,23 +152,103 @@ class ConcurrentBitMap {
      * @return one bit index
      */
     int getUniqueIndex() {
-        long state = bits.get();
-        if (Long.bitCount(state) > 1) {
+        State current = state.get();
+        if (current.population > 1) {
             throw new IllegalStateException("Multiple one bits found");
         }
-        return Long.numberOfTrailingZeros(state);
+        for (int word = 0; word < current.words.length; word++) {
+            if (current.words[word] != 0) {
+                return word << 6 | Long.numberOfTrailingZeros(current.words[word]);
+            }
+        }
+        return -1;
+    }
+
+    private void set(int index, boolean newState, boolean exclusive, Runnable changed, Runnable notChanged) {
+        if (index < 0) {
+            throw new IllegalStateException("Invalid index, must not be negative: " + index);
+        }
+        State oldState;
+        State newBitMap;
+        do {
+            oldState = state.get();
+            newBitMap = oldState.with(index, newState, exclusive);
+        } while (!state.compareAndSet(oldState, newBitMap));
+
+        Runnable callback = oldState.population == 0 != (newBitMap.population == 0) ? changed : notChanged;
+        pending.put(newBitMap.sequence, callback != null ? callback : NO_CALLBACK);
+        deliver();
     }
 
-    private void set(LongUnaryOperator operator, Runnable changed, Runnable notChanged) {
-        synchronized (bits) {
-            long oldState = bits.getAndUpdate(operator);
-            if (bits.get() > 0 && oldState == 0 || bits.get() == 0 && oldState > 0) {
-                if (changed != null) {
-                    changed.run();
+    private void deliver() {
+        if (deliveryRequests.getAndIncrement() != 0) {
+            // another thread is delivering, it will pick up our callback
+            return;
+        }
+        int requests = 1;
+        Error error = null;
+        do {
+            Runnable callback;
+            while ((callback = pending.remove(nextDelivery)) != null) {
+                nextDelivery++;
+                try {
+                    callback.run();
+                } catch (Exception ex) {
+                    logger.warn("Bitmap transition callback error", ex);
+                } catch (Error err) {
+                    // keep delivering so that the bitmap is not stuck, the error is rethrown when done
+                    logger.warn("Bitmap transition callback error", err);
+                    if (error == null) {
+                        error = err;
+                    }
                 }
-            } else if (notChanged != null) {
-                notChanged.run();
             }
+            requests = deliveryRequests.addAndGet(-requests);
+        } while (requests != 0);
+        if (error != null) {
+            throw error;
+        }
+    }
+
+    private static final class State {
+
+        private final long[] words;
+        private final int population;
+        private final long sequence;
+
+        private State(long[] words, int population, long sequence) {
+            this.words = words;
+            this.population = population;
+            this.sequence = sequence;
+        }
+
+        private boolean get(int index) {
+            int word = index >>> 6;
+            return word < words.length && (words[word] & 1L << index) != 0;
+        }
+
+        private State with(int index, boolean newState, boolean exclusive) {
+            int word = index >>> 6;
+            long mask = 1L << index;
+            long[] newWords;
+            if (exclusive) {
+                newWords = new long[Math.max(words.length, word + 1)];
+            } else if (word >= words.length) {
+                newWords = new long[newState ? word + 1 : words.length];
+                System.arraycopy(words, 0, newWords, 0, words.length);
+            } else {
+                newWords = words.clone();
+            }
+            if (word < newWords.length) {
+                newWords[word] = newState ? newWords[word] | mask : newWords[word] & ~mask;
+            }
+            int newPopulation = population;
+            if (exclusive) {
+                newPopulation = 1;
+            } else if (get(index) != newState) {
+                newPopulation += newState ? 1 : -1;
+            }
+            return new State(newWords, newPopulation, sequence + 1);
         }
     }
 
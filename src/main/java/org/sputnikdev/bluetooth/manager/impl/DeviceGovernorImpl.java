@@ -35,21 +35,24 @@ import org.sputnikdev.bluetooth.manager.GattCharacteristic;
 import org.sputnikdev.bluetooth.manager.GattService;
 import org.sputnikdev.bluetooth.manager.GenericBluetoothDeviceListener;
 import org.sputnikdev.bluetooth.manager.NotReadyException;
+import org.sputnikdev.bluetooth.manager.transport.BooleanNotification;
 import org.sputnikdev.bluetooth.manager.transport.Characteristic;
 import org.sputnikdev.bluetooth.manager.transport.Device;
 import org.sputnikdev.bluetooth.manager.transport.Notification;
 import org.sputnikdev.bluetooth.manager.transport.Service;
+import org.sputnikdev.bluetooth.manager.transport.ShortNotification;
 
-import java.time.Instant;
 import java.util.ArrayList;
-import java.util.Date;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.CopyOnWriteArrayList;
-import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.Consumer;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 /**
@@ -64,6 +67,8 @@ class DeviceGovernorImpl extends AbstractBluetoothObjectGovernor<Device> impleme
     static final int DEFAULT_ONLINE_TIMEOUT = 20;
     static final short DEFAULT_TX_POWER = -55;
     static final double DEFAULT_SIGNAL_PROPAGATION_EXPONENT = 4.0; // indoors
+    static final long ATTRIBUTES_REFRESH_RATE = 60000;
+    private static final int RSSI_BATCH_SIZE = 16;
 
     private final List<GenericBluetoothDeviceListener> genericBluetoothDeviceListeners = new CopyOnWriteArrayList<>();
     private final List<BluetoothSmartDeviceListener> bluetoothSmartDeviceListeners = new CopyOnWriteArrayList<>();
@@ -76,16 +81,27 @@ class DeviceGovernorImpl extends AbstractBluetoothObjectGovernor<Device> impleme
     private boolean connectionControl;
     private boolean blockedControl;
     private boolean online;
+    private volatile boolean lastKnownConnected;
     private int onlineTimeout = DEFAULT_ONLINE_TIMEOUT;
 
-    private final Lock rssiUpdateLock = new ReentrantLock();
+    // RSSI readings are buffered by notification threads and processed in batches
+    private final RssiRingBuffer rssiBuffer = new RssiRingBuffer();
+    private final short[] rssiBatch = new short[RSSI_BATCH_SIZE];
+    private final long[] rssiBatchTimestamps = new long[RSSI_BATCH_SIZE];
+    // only one thread at a time drains the buffer, so that listeners get readings in order
+    private final AtomicBoolean rssiDraining = new AtomicBoolean();
     private Filter<Short> rssiFilter = new RssiKalmanFilter();
     private boolean rssiFilteringEnabled = true;
     private long rssiReportingRate = DEFAULT_RSSI_REPORTING_RATE;
-    private Date rssiLastNotified = new Date();
+    private long rssiLastNotified = System.currentTimeMillis();
+    // a snapshot of the generic listeners, so that notifying them about RSSI changes does not allocate
+    private volatile GenericBluetoothDeviceListener[] rssiListeners = new GenericBluetoothDeviceListener[0];
     private short measuredTxPower;
     private double signalPropagationExponent;
     private long lastAdvertised;
+    private volatile DeviceAttributes attributes;
+    // the GATT layout validated against the GATT cache when services got resolved
+    private volatile List<GattService> resolvedServices;
 
     DeviceGovernorImpl(BluetoothManagerImpl bluetoothManager, URL url) {
         super(bluetoothManager, url);
@@ -100,6 +116,11 @@ class DeviceGovernorImpl extends AbstractBluetoothObjectGovernor<Device> impleme
         enableBlockedNotifications(device);
         enableManufacturerDataNotifications(device);
         enableServiceDataNotifications(device);
+        loadAttributes(device);
+        GattCache gattCache = bluetoothManager.getGattCache();
+        if (gattCache != null) {
+            gattCache.prefetch(url);
+        }
         logger.trace("Device governor initialization performed: {}", url);
     }
 
@@ -126,6 +147,10 @@ class DeviceGovernorImpl extends AbstractBluetoothObjectGovernor<Device> impleme
                     updateLastChanged();
                 }
             }
+            DeviceAttributes attributes = this.attributes;
+            if (attributes == null || System.currentTimeMillis() - attributes.loaded > ATTRIBUTES_REFRESH_RATE) {
+                loadAttributes(device);
+            }
         }
         updateOnline(isOnline());
         logger.trace("Device governor update performed: {}", url);
@@ -148,15 +173,18 @@ class DeviceGovernorImpl extends AbstractBluetoothObjectGovernor<Device> impleme
                 device.disconnect();
                 notifyConnected(false);
             }
+            lastKnownConnected = false;
         } catch (Exception ex) {
             logger.warn("Error occurred while resetting device: {} : {} ", url, ex.getMessage());
         }
+        resolvedServices = null;
         connectionNotification = null;
         servicesResolvedNotification = null;
         rssiNotification = null;
         blockedNotification = null;
         serviceDataNotification = null;
         manufacturerDataNotification = null;
+        attributes = null;
         logger.trace("Device governor reset performed: {}", url);
     }
 
@@ -164,34 +192,46 @@ class DeviceGovernorImpl extends AbstractBluetoothObjectGovernor<Device> impleme
     public void dispose() {
         super.dispose();
         logger.trace("Disposing device governor: {}", url);
-        genericBluetoothDeviceListeners.clear();
+        synchronized (genericBluetoothDeviceListeners) {
+            genericBluetoothDeviceListeners.clear();
+            rssiListeners = new GenericBluetoothDeviceListener[0];
+        }
         bluetoothSmartDeviceListeners.clear();
         logger.debug("Device governor disposed: {}", url);
     }
 
     @Override
     public int getBluetoothClass() throws NotReadyException {
-        return interact("getBluetoothClass", Device::getBluetoothClass);
+        DeviceAttributes attributes = this.attributes;
+        return attributes != null ? attributes.bluetoothClass
+                : interact("getBluetoothClass", Device::getBluetoothClass);
     }
 
     @Override
     public boolean isBleEnabled() throws NotReadyException {
-        return interact("isBleEnabled", Device::isBleEnabled);
+        DeviceAttributes attributes = this.attributes;
+        return attributes != null ? attributes.bleEnabled : interact("isBleEnabled", Device::isBleEnabled);
     }
 
     @Override
     public String getName() throws NotReadyException {
-        return interact("getName", Device::getName);
+        DeviceAttributes attributes = this.attributes;
+        return attributes != null ? attributes.name : interact("getName", Device::getName);
     }
 
     @Override
     public String getAlias() throws NotReadyException {
-        return interact("getAlias", Device::getAlias);
+        DeviceAttributes attributes = this.attributes;
+        return attributes != null ? attributes.alias : interact("getAlias", Device::getAlias);
     }
 
     @Override
     public void setAlias(String alias) throws NotReadyException {
         interact("setAlias", (Consumer<Device>) device -> device.setAlias(alias));
+        DeviceAttributes attributes = this.attributes;
+        if (attributes != null) {
+            this.attributes = attributes.withAlias(alias);
+        }
     }
 
     @Override
@@ -210,6 +250,7 @@ class DeviceGovernorImpl extends AbstractBluetoothObjectGovernor<Device> impleme
         boolean changed = this.connectionControl != connectionControl;
         if (changed) {
             this.connectionControl = connectionControl;
+            requestUpdate();
             scheduleUpdate();
         }
     }
@@ -223,6 +264,7 @@ class DeviceGovernorImpl extends AbstractBluetoothObjectGovernor<Device> impleme
     public void setBlockedControl(boolean blockedControl) {
         logger.debug("Setting blocked control: {} : {}", url, blockedControl);
         this.blockedControl = blockedControl;
+        requestUpdate();
     }
 
     @Override
@@ -237,9 +279,8 @@ class DeviceGovernorImpl extends AbstractBluetoothObjectGovernor<Device> impleme
 
     @Override
     public boolean isOnline() {
-        Date lastActivity = getLastActivity();
-        return lastActivity != null && Instant.now().minusSeconds(onlineTimeout)
-                .isBefore(getLastActivity().toInstant());
+        long lastActivity = getLastActivityMillis();
+        return lastActivity != 0 && System.currentTimeMillis() - lastActivity < onlineTimeout * 1000L;
     }
 
     @Override
@@ -289,7 +330,8 @@ class DeviceGovernorImpl extends AbstractBluetoothObjectGovernor<Device> impleme
 
     @Override
     public short getTxPower() {
-        return interact("getTxPower", Device::getTxPower);
+        DeviceAttributes attributes = this.attributes;
+        return attributes != null ? attributes.txPower : interact("getTxPower", Device::getTxPower);
     }
 
     @Override
@@ -352,12 +394,18 @@ class DeviceGovernorImpl extends AbstractBluetoothObjectGovernor<Device> impleme
 
     @Override
     public void addGenericBluetoothDeviceListener(GenericBluetoothDeviceListener genericBluetoothDeviceListener) {
-        genericBluetoothDeviceListeners.add(genericBluetoothDeviceListener);
+        synchronized (genericBluetoothDeviceListeners) {
+            genericBluetoothDeviceListeners.add(genericBluetoothDeviceListener);
+            rssiListeners = genericBluetoothDeviceListeners.toArray(new GenericBluetoothDeviceListener[0]);
+        }
     }
 
     @Override
     public void removeGenericBluetoothDeviceListener(GenericBluetoothDeviceListener listener) {
-        genericBluetoothDeviceListeners.remove(listener);
+        synchronized (genericBluetoothDeviceListeners) {
+            genericBluetoothDeviceListeners.remove(listener);
+            rssiListeners = genericBluetoothDeviceListeners.toArray(new GenericBluetoothDeviceListener[0]);
+        }
     }
 
     @Override
@@ -371,6 +419,14 @@ class DeviceGovernorImpl extends AbstractBluetoothObjectGovernor<Device> impleme
 
     @Override
     public List<GattService> getResolvedServices() throws NotReadyException {
+        List<GattService> resolved = resolvedServices;
+        if (resolved != null) {
+            return new ArrayList<>(resolved);
+        }
+        return readServices();
+    }
+
+    private List<GattService> readServices() throws NotReadyException {
         return interact("getResolvedServices", device -> {
             List<GattService> services = new ArrayList<>();
             for (Service service : device.getServices()) {
@@ -409,12 +465,14 @@ class DeviceGovernorImpl extends AbstractBluetoothObjectGovernor<Device> impleme
     @Override
     public String toString() {
         String result = "[Device] " + getURL();
-        if (isReady()) {
-            String displayName = getDisplayName();
+        // only cached attributes are used, so that logging never hits the native layer
+        DeviceAttributes attributes = this.attributes;
+        if (isReady() && attributes != null) {
+            String displayName = attributes.alias != null ? attributes.alias : attributes.name;
             if (displayName != null) {
                 result += " [" + displayName + "]";
             }
-            if (isBleEnabled()) {
+            if (attributes.bleEnabled) {
                 result += " [BLE]";
             }
         }
@@ -484,29 +542,66 @@ class DeviceGovernorImpl extends AbstractBluetoothObjectGovernor<Device> impleme
 
     void updateRSSI(short next) {
         logger.trace("Updating RSSI: {} : {}", url, next);
-        lastAdvertised = System.currentTimeMillis();
-        Filter<Short> filter = rssiFilter;
-        if (rssiUpdateLock.tryLock()) {
+        long timestamp = System.currentTimeMillis();
+        lastAdvertised = timestamp;
+        if (rssiBuffer.append(next, timestamp)) {
+            bluetoothManager.updateRssiOverflown();
+        }
+        RssiIngestion ingestion = bluetoothManager.getRssiIngestion();
+        if (ingestion != null) {
+            ingestion.schedule(this);
+        } else {
+            drainRSSI();
+        }
+    }
+
+    RssiRingBuffer getRssiBuffer() {
+        return rssiBuffer;
+    }
+
+    /**
+     * Processes buffered RSSI readings in batches: every reading goes through the RSSI filter,
+     * listeners are notified with the last (filtered) reading of a batch. Only one thread drains the buffer
+     * at a time and notifies listeners in the order of readings, other threads just leave their readings
+     * in the buffer for it and return, so that a slow listener does not hold them up.
+     */
+    void drainRSSI() {
+        while (rssiDraining.compareAndSet(false, true)) {
             try {
-                if (filter != null && rssiFilteringEnabled) {
-                    // devices can report RSSI too fast that we can't handle it, so we skip some readings
-                    notifyRSSIChanged(filter.next(next));
-                } else {
-                    notifyRSSIChanged(next);
+                int count;
+                while ((count = rssiBuffer.drainTo(rssiBatch, rssiBatchTimestamps)) > 0) {
+                    short value = 0;
+                    Filter<Short> filter = rssiFilter;
+                    boolean filtering = filter != null && rssiFilteringEnabled;
+                    for (int i = 0; i < count; i++) {
+                        value = filtering ? filter.next(rssiBatch[i]) : rssiBatch[i];
+                    }
+                    notifyRSSIChanged(value, rssiBatchTimestamps[count - 1]);
                 }
             } finally {
-                rssiUpdateLock.unlock();
+                rssiDraining.set(false);
+            }
+            // readings might have been appended after the buffer was found empty, their threads have left
+            if (rssiBuffer.isEmpty()) {
+                return;
             }
         }
     }
 
     void notifyRSSIChanged(short next) {
-        if (rssiReportingRate == 0
-                || System.currentTimeMillis() - rssiLastNotified.getTime() > rssiReportingRate) {
-            BluetoothManagerUtils.safeForEachError(genericBluetoothDeviceListeners,
-                    listener -> listener.rssiChanged(next), logger,
-                    "Execution error of a RSSI listener");
-            rssiLastNotified = new Date();
+        notifyRSSIChanged(next, System.currentTimeMillis());
+    }
+
+    void notifyRSSIChanged(short next, long timestamp) {
+        if (rssiReportingRate == 0 || timestamp - rssiLastNotified > rssiReportingRate) {
+            for (GenericBluetoothDeviceListener listener : rssiListeners) {
+                try {
+                    listener.rssiChanged(next);
+                } catch (Exception ex) {
+                    logger.error("Execution error of a RSSI listener", ex);
+                }
+            }
+            rssiLastNotified = timestamp;
         }
     }
 
@@ -543,7 +638,7 @@ class DeviceGovernorImpl extends AbstractBluetoothObjectGovernor<Device> impleme
         logger.debug("Enabling connection notification: {} : {}", getURL(), connectionNotification == null);
         if (connectionNotification == null) {
             connectionNotification = new ConnectionNotification();
-            bluetoothDevice.enableConnectedNotifications(connectionNotification);
+            bluetoothDevice.enableConnectedNotificationsPrimitive(connectionNotification);
         }
     }
 
@@ -551,7 +646,7 @@ class DeviceGovernorImpl extends AbstractBluetoothObjectGovernor<Device> impleme
         logger.debug("Enabling blocked notification: {} : {}", getURL(), blockedNotification == null);
         if (blockedNotification == null) {
             blockedNotification = new BlockedNotification();
-            bluetoothDevice.enableBlockedNotifications(blockedNotification);
+            bluetoothDevice.enableBlockedNotificationsPrimitive(blockedNotification);
         }
     }
 
@@ -560,7 +655,7 @@ class DeviceGovernorImpl extends AbstractBluetoothObjectGovernor<Device> impleme
                 getURL(), servicesResolvedNotification == null);
         if (servicesResolvedNotification == null) {
             servicesResolvedNotification = new ServicesResolvedNotification();
-            bluetoothDevice.enableServicesResolvedNotifications(servicesResolvedNotification);
+            bluetoothDevice.enableServicesResolvedNotificationsPrimitive(servicesResolvedNotification);
         }
     }
 
@@ -568,7 +663,7 @@ class DeviceGovernorImpl extends AbstractBluetoothObjectGovernor<Device> impleme
         logger.debug("Enabling RSSI notification: {} : {}", getURL(), rssiNotification == null);
         if (rssiNotification == null) {
             rssiNotification = new RSSINotification();
-            bluetoothDevice.enableRSSINotifications(rssiNotification);
+            bluetoothDevice.enableRSSINotificationsPrimitive(rssiNotification);
         }
     }
 
@@ -621,6 +716,11 @@ class DeviceGovernorImpl extends AbstractBluetoothObjectGovernor<Device> impleme
         }
     }
 
+    @Override
+    boolean isSteady() {
+        return online && (blockedControl || connectionControl == lastKnownConnected);
+    }
+
     private boolean updateConnected(Device device) {
         logger.trace("Updating device governor connected state: {}", url);
         boolean connected = device.isConnected();
@@ -634,9 +734,29 @@ class DeviceGovernorImpl extends AbstractBluetoothObjectGovernor<Device> impleme
             resetCharacteristics();
             connected = false;
         }
+        lastKnownConnected = connected;
         return connected;
     }
 
+    private void loadAttributes(Device device) {
+        logger.trace("Loading device attributes: {}", url);
+        try {
+            attributes = new DeviceAttributes(device.getName(), device.getAlias(), device.getBluetoothClass(),
+                    device.isBleEnabled(), device.getTxPower(), System.currentTimeMillis());
+        } catch (Exception ex) {
+            // not critical, attributes will be requested from the native object directly
+            logger.warn("Could not load device attributes: {} : {}", url, ex.getMessage());
+        }
+    }
+
+    private void markAttributesStale() {
+        // some attributes (e.g. name) might become available once connected, reloading them on the next update
+        DeviceAttributes attributes = this.attributes;
+        if (attributes != null) {
+            this.attributes = attributes.stale();
+        }
+    }
+
     private short getTxPowerInternal() {
         short txPower = measuredTxPower;
         if (txPower == 0 && isReady()) {
@@ -663,41 +783,74 @@ class DeviceGovernorImpl extends AbstractBluetoothObjectGovernor<Device> impleme
     }
 
     private Map<URL, byte[]> convert(Map<String, byte[]> serviceData) {
+        CanonicalURLs canonicalURLs = bluetoothManager.getCanonicalURLs();
         return serviceData.entrySet().stream()
-                .collect(Collectors.toMap(entry -> url.copyWithService(entry.getKey()), Map.Entry::getValue)) ;
+                .collect(Collectors.toMap(entry -> canonicalURLs.service(url, entry.getKey()), Map.Entry::getValue)) ;
+    }
+
+    private static final class DeviceAttributes {
+
+        private final String name;
+        private final String alias;
+        private final int bluetoothClass;
+        private final boolean bleEnabled;
+        private final short txPower;
+        private final long loaded;
+
+        private DeviceAttributes(String name, String alias, int bluetoothClass, boolean bleEnabled, short txPower,
+                                 long loaded) {
+            this.name = name;
+            this.alias = alias;
+            this.bluetoothClass = bluetoothClass;
+            this.bleEnabled = bleEnabled;
+            this.txPower = txPower;
+            this.loaded = loaded;
+        }
+
+        private DeviceAttributes withAlias(String alias) {
+            return new DeviceAttributes(name, alias, bluetoothClass, bleEnabled, txPower, loaded);
+        }
+
+        private DeviceAttributes stale() {
+            return new DeviceAttributes(name, alias, bluetoothClass, bleEnabled, txPower, 0);
+        }
     }
 
-    private class ConnectionNotification implements Notification<Boolean> {
+    private class ConnectionNotification implements BooleanNotification {
         @Override
-        public void notify(Boolean connected) {
+        public void notify(boolean connected) {
             logger.debug("Connected (notification): {} : {}", url, connected);
+            lastKnownConnected = connected;
+            markAttributesStale();
             notifyConnected(connected);
             updateLastChanged();
         }
     }
 
-    private class BlockedNotification implements Notification<Boolean> {
+    private class BlockedNotification implements BooleanNotification {
         @Override
-        public void notify(Boolean blocked) {
+        public void notify(boolean blocked) {
             logger.debug("Blocked (notification): {} : {}", url, blocked);
             notifyBlocked(blocked);
             updateLastChanged();
         }
     }
 
-    private class ServicesResolvedNotification implements Notification<Boolean> {
+    private class ServicesResolvedNotification implements BooleanNotification {
         @Override
-        public void notify(Boolean serviceResolved) {
+        public void notify(boolean serviceResolved) {
             logger.debug("Services resolved (notification): {} : {}", url, serviceResolved);
 
             if (serviceResolved) {
-                List<GattService> gattServices = getResolvedServices();
+                markAttributesStale();
+                List<GattService> gattServices = resolveServices();
                 updateCharacteristics();
                 if (gattServices != null && !gattServices.isEmpty()) {
                     notifyServicesResolved(gattServices);
                 }
             } else {
                 logger.debug("Resetting characteristic governors due to services unresolved event: {}", url);
+                resolvedServices = null;
                 resetCharacteristics();
                 notifyServicesUnresolved();
             }
@@ -705,9 +858,86 @@ class DeviceGovernorImpl extends AbstractBluetoothObjectGovernor<Device> impleme
         }
     }
 
-    private class RSSINotification implements Notification<Short> {
+    /**
+     * Resolves the GATT layout of the device. A cached layout is used if the device reports the same services,
+     * so that characteristics of every service do not need to be read from the transport before listeners
+     * get notified. The cached layout is then reconciled with the transport in the background.
+     * Otherwise, the layout is read from the transport and the cache is updated.
+     * @return resolved GATT services
+     */
+    private List<GattService> resolveServices() {
+        resolvedServices = null;
+        GattCache gattCache = bluetoothManager.getGattCache();
+        List<GattService> cached = gattCache != null ? gattCache.get(url) : null;
+        if (cached != null && !cached.isEmpty()
+                && interact("getServices", (Function<Device, Boolean>) device -> matches(cached, device))) {
+            logger.debug("Device services match the cached GATT layout: {}", url);
+            resolvedServices = cached;
+            reconcileServices(gattCache, cached);
+            return cached;
+        }
+        List<GattService> gattServices = getResolvedServices();
+        if (gattCache != null && gattServices != null && !gattServices.isEmpty()) {
+            gattCache.put(url, gattServices);
+        }
+        return gattServices;
+    }
+
+    /**
+     * Reads the GATT layout from the transport (through the command lane) and compares it with the served cached
+     * layout, so that characteristics added, removed or changed by a firmware update are detected. A changed
+     * layout replaces the cached one and listeners are notified again.
+     * @param gattCache GATT cache
+     * @param cached served cached layout
+     */
+    private void reconcileServices(GattCache gattCache, List<GattService> cached) {
+        try {
+            bluetoothManager.getCommandLane(url).execute(() -> {
+                if (resolvedServices != cached) {
+                    // services have been unresolved or resolved again in the meantime
+                    return;
+                }
+                List<GattService> actual;
+                try {
+                    actual = readServices();
+                } catch (NotReadyException ex) {
+                    logger.debug("Could not reconcile GATT layout, device is not ready: {}", url);
+                    return;
+                }
+                if (actual == null || actual.isEmpty()) {
+                    gattCache.invalidate(url);
+                } else if (gattCache.put(url, actual) && resolvedServices == cached) {
+                    logger.debug("Cached GATT layout is stale, notifying actual layout: {}", url);
+                    resolvedServices = actual;
+                    updateCharacteristics();
+                    notifyServicesResolved(actual);
+                }
+            });
+        } catch (RejectedExecutionException ex) {
+            logger.debug("GATT layout reconciliation is rejected, the manager is disposed: {}", url);
+        }
+    }
+
+    private static boolean matches(List<GattService> cached, Device device) {
+        List<Service> services = device.getServices();
+        if (services == null || services.size() != cached.size()) {
+            return false;
+        }
+        Set<String> uuids = new HashSet<>();
+        for (GattService service : cached) {
+            uuids.add(service.getURL().getServiceUUID());
+        }
+        for (Service service : services) {
+            if (!uuids.contains(service.getURL().getServiceUUID())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private class RSSINotification implements ShortNotification {
         @Override
-        public void notify(Short rssi) {
+        public void notify(short rssi) {
             updateRSSI(rssi);
             updateLastChanged();
         }
@@ -0,0 +1,278 @@
+package org.sputnikdev.bluetooth.manager.impl;
+
+/*-
+ * #%L
+ * org.sputnikdev:bluetooth-manager
+ * %%
+ * Copyright (C) 2017 Sputnik Dev
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.sputnikdev.bluetooth.URL;
+import org.sputnikdev.bluetooth.manager.AdapterGovernor;
+import org.sputnikdev.bluetooth.manager.BluetoothGovernor;
+import org.sputnikdev.bluetooth.manager.DeviceGovernor;
+import org.sputnikdev.bluetooth.manager.DiscoveredAdapter;
+import org.sputnikdev.bluetooth.manager.DiscoveredDevice;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * A journal of discovery results and governor control state which is used to warm up the manager after restart.
+ *
+ * <p>The journal records discovered adapters (and therefore which transport serves which adapter),
+ * discovered devices and control flags of adapter and device governors. It is a small snapshot file in a compact
+ * binary format, which is atomically replaced only when its content changes.
+ *
+ * @author Vlad Kolotov
+ */
+class DiscoveryJournal {
+
+    private static final int FORMAT_VERSION = 0x424d4a01;
+
+    private static final int FIRST_CONTROL = 1;
+    private static final int SECOND_CONTROL = 2;
+
+    private Logger logger = LoggerFactory.getLogger(DiscoveryJournal.class);
+
+    private final Path file;
+    private byte[] saved;
+
+    DiscoveryJournal(Path file) {
+        this.file = file;
+    }
+
+    /**
+     * Loads the journal from disk.
+     * @return journal content, an empty snapshot if the journal does not exist or it cannot be read
+     */
+    synchronized Snapshot load() {
+        try {
+            byte[] content = Files.readAllBytes(file);
+            Snapshot snapshot = decode(content);
+            saved = content;
+            return snapshot;
+        } catch (NoSuchFileException ex) {
+            logger.debug("Discovery journal does not exist: {}", file);
+        } catch (IOException ex) {
+            logger.warn("Could not load discovery journal: {} : {}", file, ex.getMessage());
+        }
+        return new Snapshot(Collections.emptyList(), Collections.emptyList(), Collections.emptyMap());
+    }
+
+    /**
+     * Saves the given state into the journal if it differs from the last saved one.
+     * @param adapters discovered adapters
+     * @param devices discovered devices
+     * @param governors governors which control state should be saved, governors other than adapters and devices
+     *                  are ignored
+     * @param restoredControls control flags restored from the journal which have not been applied to governors yet
+     * @return true if the journal has been updated
+     */
+    synchronized boolean save(Collection<DiscoveredAdapter> adapters, Collection<DiscoveredDevice> devices,
+                              Collection<? extends BluetoothGovernor> governors,
+                              Map<URL, Integer> restoredControls) {
+        byte[] content = encode(adapters, devices, governors, restoredControls);
+        if (Arrays.equals(saved, content)) {
+            return false;
+        }
+        try {
+            Path directory = file.toAbsolutePath().getParent();
+            Files.createDirectories(directory);
+            Path tmp = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+            Files.write(tmp, content);
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            saved = content;
+            return true;
+        } catch (IOException ex) {
+            logger.warn("Could not save discovery journal: {} : {}", file, ex.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Returns control flags of the given governor in the journal form.
+     * @param governor adapter or device governor
+     * @return control flags
+     */
+    static int getControls(BluetoothGovernor governor) {
+        int controls = 0;
+        if (governor instanceof AdapterGovernor) {
+            AdapterGovernor adapterGovernor = (AdapterGovernor) governor;
+            controls |= adapterGovernor.getPoweredControl() ? FIRST_CONTROL : 0;
+            controls |= adapterGovernor.getDiscoveringControl() ? SECOND_CONTROL : 0;
+        } else if (governor instanceof DeviceGovernor) {
+            DeviceGovernor deviceGovernor = (DeviceGovernor) governor;
+            controls |= deviceGovernor.getConnectionControl() ? FIRST_CONTROL : 0;
+            controls |= deviceGovernor.getBlockedControl() ? SECOND_CONTROL : 0;
+        }
+        return controls;
+    }
+
+    /**
+     * Applies control flags from the journal to the given governor.
+     * @param governor adapter or device governor
+     * @param controls control flags
+     */
+    static void applyControls(BluetoothGovernor governor, int controls) {
+        boolean first = (controls & FIRST_CONTROL) != 0;
+        boolean second = (controls & SECOND_CONTROL) != 0;
+        if (governor instanceof AdapterGovernor) {
+            AdapterGovernor adapterGovernor = (AdapterGovernor) governor;
+            adapterGovernor.setPoweredControl(first);
+            adapterGovernor.setDiscoveringControl(second);
+        } else if (governor instanceof DeviceGovernor) {
+            DeviceGovernor deviceGovernor = (DeviceGovernor) governor;
+            deviceGovernor.setBlockedControl(second);
+            deviceGovernor.setConnectionControl(first);
+        }
+    }
+
+    private static byte[] encode(Collection<DiscoveredAdapter> adapters, Collection<DiscoveredDevice> devices,
+                                 Collection<? extends BluetoothGovernor> governors,
+                                 Map<URL, Integer> restoredControls) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream output = new DataOutputStream(bytes)) {
+            output.writeInt(FORMAT_VERSION);
+            // collections are live, each one is copied once so that the written count matches the written entries
+            List<DiscoveredAdapter> sortedAdapters = sorted(adapters, DiscoveredAdapter::getURL);
+            output.writeInt(sortedAdapters.size());
+            for (DiscoveredAdapter adapter : sortedAdapters) {
+                output.writeUTF(adapter.getURL().toString());
+                writeString(output, adapter.getName());
+                writeString(output, adapter.getAlias());
+            }
+            List<DiscoveredDevice> sortedDevices = sorted(devices, DiscoveredDevice::getURL);
+            output.writeInt(sortedDevices.size());
+            for (DiscoveredDevice device : sortedDevices) {
+                output.writeUTF(device.getURL().toString());
+                writeString(output, device.getName());
+                writeString(output, device.getAlias());
+                output.writeShort(device.getRSSI());
+                output.writeInt(device.getBluetoothClass());
+                output.writeBoolean(device.isBleEnabled());
+            }
+            // live governors take precedence over controls which are still waiting for their governors
+            Map<URL, Integer> controls = new HashMap<>(restoredControls);
+            for (BluetoothGovernor governor : governors) {
+                if (governor instanceof AdapterGovernor || governor instanceof DeviceGovernor) {
+                    controls.put(governor.getURL(), getControls(governor));
+                }
+            }
+            List<Map.Entry<URL, Integer>> sortedControls = sorted(controls.entrySet(), Map.Entry::getKey);
+            output.writeInt(sortedControls.size());
+            for (Map.Entry<URL, Integer> entry : sortedControls) {
+                output.writeUTF(entry.getKey().toString());
+                output.writeByte(entry.getValue());
+            }
+        } catch (IOException ex) {
+            // never happens when writing to memory
+            throw new IllegalStateException(ex);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static Snapshot decode(byte[] content) throws IOException {
+        try (DataInputStream input = new DataInputStream(new ByteArrayInputStream(content))) {
+            if (input.readInt() != FORMAT_VERSION) {
+                throw new IOException("Unsupported format");
+            }
+            int adaptersCount = input.readInt();
+            List<DiscoveredAdapter> adapters = new ArrayList<>();
+            for (int i = 0; i < adaptersCount; i++) {
+                adapters.add(new DiscoveredAdapter(new URL(input.readUTF()), readString(input), readString(input)));
+            }
+            int devicesCount = input.readInt();
+            List<DiscoveredDevice> devices = new ArrayList<>();
+            for (int i = 0; i < devicesCount; i++) {
+                devices.add(new DiscoveredDevice(new URL(input.readUTF()), readString(input), readString(input),
+                        input.readShort(), input.readInt(), input.readBoolean()));
+            }
+            int governorsCount = input.readInt();
+            Map<URL, Integer> controls = new LinkedHashMap<>();
+            for (int i = 0; i < governorsCount; i++) {
+                controls.put(new URL(input.readUTF()), (int) input.readByte());
+            }
+            return new Snapshot(adapters, devices, controls);
+        }
+    }
+
+    private static <T> List<T> sorted(Collection<T> objects, Function<T, URL> url) {
+        // stable order, so that the same state always gives the same content
+        List<T> sorted = new ArrayList<>(objects);
+        sorted.sort((first, second) -> url.apply(first).toString().compareTo(url.apply(second).toString()));
+        return sorted;
+    }
+
+    private static void writeString(DataOutputStream output, String value) throws IOException {
+        output.writeBoolean(value != null);
+        if (value != null) {
+            output.writeUTF(value);
+        }
+    }
+
+    private static String readString(DataInputStream input) throws IOException {
+        return input.readBoolean() ? input.readUTF() : null;
+    }
+
+    /**
+     * Journal content.
+     */
+    static final class Snapshot {
+
+        private final List<DiscoveredAdapter> adapters;
+        private final List<DiscoveredDevice> devices;
+        private final Map<URL, Integer> controls;
+
+        private Snapshot(List<DiscoveredAdapter> adapters, List<DiscoveredDevice> devices,
+                         Map<URL, Integer> controls) {
+            this.adapters = adapters;
+            this.devices = devices;
+            this.controls = controls;
+        }
+
+        List<DiscoveredAdapter> getAdapters() {
+            return adapters;
+        }
+
+        List<DiscoveredDevice> getDevices() {
+            return devices;
+        }
+
+        Map<URL, Integer> getControls() {
+            return controls;
+        }
+    }
+
+}
@@ -0,0 +1,258 @@
+package org.sputnikdev.bluetooth.manager.impl;
+
+/*-
+ * #%L
+ * org.sputnikdev:bluetooth-manager
+ * %%
+ * Copyright (C) 2017 Sputnik Dev
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.sputnikdev.bluetooth.URL;
+import org.sputnikdev.bluetooth.manager.GattCharacteristic;
+import org.sputnikdev.bluetooth.manager.GattService;
+import org.sputnikdev.bluetooth.manager.transport.CharacteristicAccessType;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+
+/**
+ * A persistent cache of GATT layouts (services and their characteristics) of bluetooth devices.
+ *
+ * <p>Layouts are keyed by device address, so that the same layout is shared between adapters. Each layout
+ * is stored in its own file in a compact binary format: UUIDs are written as two longs
+ * (or as strings if they are not valid UUIDs), characteristic flags are written as a single byte bit field.
+ * Files are kept in memory in their binary form, which is also used to detect layout changes.
+ * Files are read and written by the given (background) executor, so that callers of {@link #get(URL)} and
+ * {@link #put(URL, List)}, e.g. transport notification threads, never wait for disk I/O.
+ *
+ * @author Vlad Kolotov
+ */
+class GattCache {
+
+    private static final int FORMAT_VERSION = 0x47415401;
+    private static final String FILE_EXTENSION = ".gatt";
+    private static final byte UUID_BINARY = 0;
+    private static final byte UUID_STRING = 1;
+    // marks devices which layouts are not found on disk
+    private static final byte[] MISSING = new byte[0];
+
+    private Logger logger = LoggerFactory.getLogger(GattCache.class);
+
+    private final Path directory;
+    private final Executor executor;
+    private final Map<String, byte[]> layouts = new ConcurrentHashMap<>();
+
+    GattCache(Path directory, Executor executor) {
+        this.directory = directory;
+        this.executor = executor;
+    }
+
+    /**
+     * Loads the layout of the given device from disk in background unless it is loaded already.
+     * @param deviceURL device URL
+     */
+    void prefetch(URL deviceURL) {
+        String key = getKey(deviceURL);
+        if (!layouts.containsKey(key)) {
+            executor.execute(() -> layouts.computeIfAbsent(key, this::load));
+        }
+    }
+
+    /**
+     * Returns a cached layout of the given device. Only layouts which have already been loaded
+     * are returned, otherwise the layout is loaded in background (see {@link #prefetch(URL)}).
+     * @param deviceURL device URL
+     * @return a list of GATT services or null if the layout is not known (or not loaded yet)
+     */
+    List<GattService> get(URL deviceURL) {
+        String key = getKey(deviceURL);
+        byte[] layout = layouts.get(key);
+        if (layout == null) {
+            prefetch(deviceURL);
+            layout = layouts.get(key);
+        }
+        if (layout == null || layout == MISSING) {
+            return null;
+        }
+        try {
+            return decode(deviceURL, layout);
+        } catch (IOException ex) {
+            logger.warn("Could not decode cached GATT layout: {} : {}", deviceURL, ex.getMessage());
+            invalidate(deviceURL);
+            return null;
+        }
+    }
+
+    /**
+     * Stores the layout of the given device if it differs from the cached one.
+     * @param deviceURL device URL
+     * @param services resolved GATT services
+     * @return true if the layout was not known or it has changed
+     */
+    boolean put(URL deviceURL, List<GattService> services) {
+        String key = getKey(deviceURL);
+        byte[] layout = encode(services);
+        byte[] cached = layouts.put(key, layout);
+        if (Arrays.equals(cached, layout)) {
+            return false;
+        }
+        logger.debug("GATT layout has changed, updating the cache: {}", deviceURL);
+        executor.execute(() -> store(key));
+        return true;
+    }
+
+    /**
+     * Removes the layout of the given device from the cache.
+     * @param deviceURL device URL
+     */
+    void invalidate(URL deviceURL) {
+        String key = getKey(deviceURL);
+        layouts.put(key, MISSING);
+        executor.execute(() -> store(key));
+    }
+
+    private byte[] load(String key) {
+        try {
+            return Files.readAllBytes(getFile(key));
+        } catch (NoSuchFileException ex) {
+            return MISSING;
+        } catch (IOException ex) {
+            logger.warn("Could not load cached GATT layout: {} : {}", key, ex.getMessage());
+            return MISSING;
+        }
+    }
+
+    private synchronized void store(String key) {
+        // the latest layout is written, so that writes of the same layout cannot overtake each other
+        byte[] layout = layouts.get(key);
+        try {
+            Path file = getFile(key);
+            if (layout == null || layout == MISSING) {
+                Files.deleteIfExists(file);
+                return;
+            }
+            Files.createDirectories(directory);
+            Path tmp = Files.createTempFile(directory, key, ".tmp");
+            Files.write(tmp, layout);
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException ex) {
+            logger.warn("Could not store GATT layout: {} : {}", key, ex.getMessage());
+        }
+    }
+
+    private Path getFile(String key) {
+        return directory.resolve(key + FILE_EXTENSION);
+    }
+
+    private static String getKey(URL deviceURL) {
+        return deviceURL.getDeviceAddress().replace(":", "").toUpperCase();
+    }
+
+    private static byte[] encode(List<GattService> services) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream output = new DataOutputStream(bytes)) {
+            output.writeInt(FORMAT_VERSION);
+            output.writeShort(services.size());
+            for (GattService service : services) {
+                writeUUID(output, service.getURL().getServiceUUID());
+                List<GattCharacteristic> characteristics = service.getCharacteristics();
+                output.writeShort(characteristics.size());
+                for (GattCharacteristic characteristic : characteristics) {
+                    writeUUID(output, characteristic.getURL().getCharacteristicUUID());
+                    output.writeByte(CharacteristicAccessType.toBitField(characteristic.getFlags()));
+                }
+            }
+        } catch (IOException ex) {
+            // never happens when writing to memory
+            throw new IllegalStateException(ex);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static List<GattService> decode(URL deviceURL, byte[] layout) throws IOException {
+        try (DataInputStream input = new DataInputStream(new ByteArrayInputStream(layout))) {
+            if (input.readInt() != FORMAT_VERSION) {
+                throw new IOException("Unsupported format");
+            }
+            int servicesCount = input.readUnsignedShort();
+            List<GattService> services = new ArrayList<>(servicesCount);
+            for (int i = 0; i < servicesCount; i++) {
+                URL serviceURL = deviceURL.copyWithService(readUUID(input));
+                int characteristicsCount = input.readUnsignedShort();
+                List<GattCharacteristic> characteristics = new ArrayList<>(characteristicsCount);
+                for (int j = 0; j < characteristicsCount; j++) {
+                    URL characteristicURL = serviceURL.copyWithCharacteristic(readUUID(input));
+                    characteristics.add(new GattCharacteristic(characteristicURL,
+                            CharacteristicAccessType.parse(input.readUnsignedByte())));
+                }
+                services.add(new GattService(serviceURL, characteristics));
+            }
+            return services;
+        }
+    }
+
+    private static void writeUUID(DataOutputStream output, String uuid) throws IOException {
+        UUID parsed = parseUUID(uuid);
+        if (parsed != null) {
+            output.writeByte(UUID_BINARY);
+            output.writeLong(parsed.getMostSignificantBits());
+            output.writeLong(parsed.getLeastSignificantBits());
+        } else {
+            output.writeByte(UUID_STRING);
+            output.writeUTF(uuid);
+        }
+    }
+
+    private static String readUUID(DataInputStream input) throws IOException {
+        byte type = input.readByte();
+        if (type == UUID_BINARY) {
+            return new UUID(input.readLong(), input.readLong()).toString();
+        } else if (type == UUID_STRING) {
+            return input.readUTF();
+        }
+        throw new IOException("Unknown UUID type: " + type);
+    }
+
+    private static UUID parseUUID(String uuid) {
+        if (uuid.length() != 36) {
+            return null;
+        }
+        try {
+            UUID parsed = UUID.fromString(uuid);
+            // only canonical (lower case) UUIDs can be restored exactly as they were
+            return parsed.toString().equals(uuid) ? parsed : null;
+        } catch (IllegalArgumentException ex) {
+            return null;
+        }
+    }
+
+}
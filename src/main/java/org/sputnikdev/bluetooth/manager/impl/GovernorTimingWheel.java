@@ -0,0 +1,363 @@
+package org.sputnikdev.bluetooth.manager.impl;
+
+/*-
+ * #%L
+ * org.sputnikdev:bluetooth-manager
+ * %%
+ * Copyright (C) 2017 Sputnik Dev
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Queue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * A hashed timing wheel that drives periodic governor updates from a single tick source.
+ *
+ * <p>Each scheduled task lives in a bucket of the wheel (a doubly linked list), so that scheduling, rescheduling
+ * and cancelling a task are O(1) operations. Delays that do not fit into one revolution of the wheel are handled
+ * by counting remaining revolutions (rounds) for each task, which gives the same effect as an extra level
+ * of the wheel without its bookkeeping.
+ *
+ * <p>The {@link #tick()} method is meant to be invoked periodically by a single scheduled job, it advances
+ * the wheel up to the current time and hands expired tasks over to the executor. Periodic tasks are rescheduled
+ * with a fixed delay once they complete, therefore the same task never runs concurrently. Tasks rejected by their
+ * executor are retried on the next tick, unless the wheel has been stopped.
+ *
+ * @author Vlad Kolotov
+ */
+class GovernorTimingWheel {
+
+    static final long DEFAULT_TICK_MS = 100;
+    static final int DEFAULT_WHEEL_SIZE = 512;
+
+    // golden ratio conjugate, gives a low discrepancy sequence for spreading initial delays
+    private static final double SPREAD_STEP = 0.6180339887498949;
+
+    private Logger logger = LoggerFactory.getLogger(GovernorTimingWheel.class);
+
+    private final Executor executor;
+    private final LongSupplier clock;
+    private final long tickNanos;
+    private final Bucket[] wheel;
+    private final int mask;
+    private final long startTime;
+    private final Queue<Timeout> pending = new ConcurrentLinkedQueue<>();
+    private final AtomicLong spreadSequence = new AtomicLong();
+
+    private long tick;
+    private volatile boolean stopped;
+
+    GovernorTimingWheel(Executor executor, long tickDuration, TimeUnit unit, int wheelSize) {
+        this(executor, tickDuration, unit, wheelSize, System::nanoTime);
+    }
+
+    GovernorTimingWheel(Executor executor, long tickDuration, TimeUnit unit, int wheelSize, LongSupplier clock) {
+        if (tickDuration <= 0) {
+            throw new IllegalArgumentException("Tick duration must be greater than 0: " + tickDuration);
+        }
+        if (wheelSize <= 0 || wheelSize > 1 << 30) {
+            throw new IllegalArgumentException("Wheel size must be between 1 and 2^30: " + wheelSize);
+        }
+        this.executor = executor;
+        this.clock = clock;
+        tickNanos = unit.toNanos(tickDuration);
+        int size = Integer.highestOneBit(wheelSize - 1 > 0 ? (wheelSize - 1) << 1 : 1);
+        wheel = new Bucket[size];
+        for (int i = 0; i < size; i++) {
+            wheel[i] = new Bucket();
+        }
+        mask = size - 1;
+        startTime = clock.getAsLong();
+    }
+
+    /**
+     * Schedules a periodic task with a fixed delay between the end of one execution and the start of the next one.
+     * @param task a task to execute
+     * @param initialDelay delay before the first execution
+     * @param period delay between executions
+     * @param unit time unit of the delays
+     * @return a handle which can be used to cancel or reschedule the task
+     */
+    Timeout schedule(Runnable task, long initialDelay, long period, TimeUnit unit) {
+        return schedule(task, executor, initialDelay, period, unit);
+    }
+
+    /**
+     * Schedules a periodic task with a fixed delay between the end of one execution and the start of the next one.
+     * The task is executed by the provided executor instead of the default one.
+     * @param task a task to execute
+     * @param executor an executor to run the task
+     * @param initialDelay delay before the first execution
+     * @param period delay between executions
+     * @param unit time unit of the delays
+     * @return a handle which can be used to cancel or reschedule the task
+     */
+    Timeout schedule(Runnable task, Executor executor, long initialDelay, long period, TimeUnit unit) {
+        Timeout timeout = new Timeout(task, executor, unit.toNanos(period));
+        timeout.reschedule(initialDelay, unit);
+        return timeout;
+    }
+
+    /**
+     * Schedules a periodic task so that its first execution happens somewhere within the first period.
+     * Consecutive calls pick initial delays which are evenly spread over the period,
+     * so that tasks registered at the same moment do not fire all together.
+     * @param task a task to execute
+     * @param period delay between executions
+     * @param unit time unit of the period
+     * @return a handle which can be used to cancel or reschedule the task
+     */
+    Timeout scheduleSpread(Runnable task, long period, TimeUnit unit) {
+        return scheduleSpread(task, executor, period, unit);
+    }
+
+    /**
+     * Schedules a periodic task so that its first execution happens somewhere within the first period.
+     * The task is executed by the provided executor instead of the default one.
+     * @param task a task to execute
+     * @param executor an executor to run the task
+     * @param period delay between executions
+     * @param unit time unit of the period
+     * @return a handle which can be used to cancel or reschedule the task
+     */
+    Timeout scheduleSpread(Runnable task, Executor executor, long period, TimeUnit unit) {
+        double fraction = (spreadSequence.getAndIncrement() * SPREAD_STEP) % 1;
+        long periodNanos = unit.toNanos(period);
+        return schedule(task, executor, (long) (periodNanos * fraction), periodNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Advances the wheel up to the current time and dispatches all expired tasks.
+     */
+    synchronized void tick() {
+        long currentTick = (clock.getAsLong() - startTime) / tickNanos;
+        while (tick <= currentTick) {
+            transferPending();
+            expire(wheel[(int) (tick & mask)]);
+            tick++;
+        }
+    }
+
+    /**
+     * Stops the wheel for good, tasks that expire afterwards are cancelled instead of being dispatched.
+     */
+    void stop() {
+        stopped = true;
+    }
+
+    int size() {
+        int size = 0;
+        synchronized (this) {
+            for (Bucket bucket : wheel) {
+                size += bucket.size;
+            }
+        }
+        return size + pending.size();
+    }
+
+    private void transferPending() {
+        Timeout timeout;
+        while ((timeout = pending.poll()) != null) {
+            if (timeout.bucket != null) {
+                timeout.bucket.remove(timeout);
+            }
+            if (timeout.isCancelled()) {
+                continue;
+            }
+            long calculated = timeout.deadline / tickNanos;
+            timeout.remainingRounds = (calculated - tick) >> Integer.numberOfTrailingZeros(wheel.length);
+            wheel[(int) (Math.max(calculated, tick) & mask)].add(timeout);
+        }
+    }
+
+    private void expire(Bucket bucket) {
+        Timeout timeout = bucket.head;
+        while (timeout != null) {
+            Timeout next = timeout.next;
+            if (timeout.isCancelled()) {
+                bucket.remove(timeout);
+            } else if (timeout.remainingRounds <= 0) {
+                bucket.remove(timeout);
+                dispatch(timeout);
+            } else {
+                timeout.remainingRounds--;
+            }
+            timeout = next;
+        }
+    }
+
+    private void dispatch(Timeout timeout) {
+        if (stopped) {
+            timeout.cancel(false);
+            return;
+        }
+        try {
+            timeout.executor.execute(timeout);
+        } catch (RejectedExecutionException ex) {
+            // a dropped periodic task would never run again, hence it is retried until the wheel is stopped
+            logger.warn("Timing wheel task rejected, retrying on the next tick: {}", ex.getMessage());
+            timeout.reschedule(tickNanos, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * A handle of a scheduled task. Behaves like a periodic {@link Future}: it never completes normally
+     * and it is done only when cancelled.
+     */
+    final class Timeout implements Future<Void>, Runnable {
+
+        private final Runnable task;
+        private final Executor executor;
+        private final long period;
+        private final AtomicBoolean cancelled = new AtomicBoolean();
+        private final CountDownLatch done = new CountDownLatch(1);
+        private volatile long deadline;
+        private volatile Thread runner;
+
+        // owned by the tick thread
+        private long remainingRounds;
+        private Bucket bucket;
+        private Timeout next;
+        private Timeout prev;
+
+        private Timeout(Runnable task, Executor executor, long period) {
+            this.task = task;
+            this.executor = executor;
+            this.period = period;
+        }
+
+        /**
+         * Moves the next execution of the task to the given delay from now.
+         * @param delay delay before the next execution
+         * @param unit time unit of the delay
+         */
+        void reschedule(long delay, TimeUnit unit) {
+            deadline = clock.getAsLong() - startTime + unit.toNanos(delay);
+            pending.add(this);
+        }
+
+        @Override
+        public void run() {
+            if (isCancelled()) {
+                return;
+            }
+            runner = Thread.currentThread();
+            try {
+                task.run();
+            } catch (Exception ex) {
+                logger.warn("Error occurred while executing timing wheel task", ex);
+            } finally {
+                runner = null;
+                if (!isCancelled() && period > 0) {
+                    reschedule(period, TimeUnit.NANOSECONDS);
+                }
+            }
+        }
+
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            if (cancelled.compareAndSet(false, true)) {
+                Thread thread = runner;
+                if (mayInterruptIfRunning && thread != null) {
+                    thread.interrupt();
+                }
+                done.countDown();
+                // let the tick thread unlink the task from its bucket
+                pending.add(this);
+                return true;
+            }
+            return false;
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return cancelled.get();
+        }
+
+        @Override
+        public boolean isDone() {
+            return isCancelled();
+        }
+
+        @Override
+        public Void get() throws InterruptedException {
+            done.await();
+            throw new CancellationException();
+        }
+
+        @Override
+        public Void get(long timeout, TimeUnit unit) throws InterruptedException, TimeoutException {
+            if (!done.await(timeout, unit)) {
+                throw new TimeoutException();
+            }
+            throw new CancellationException();
+        }
+    }
+
+    private static final class Bucket {
+
+        private Timeout head;
+        private Timeout tail;
+        private int size;
+
+        private void add(Timeout timeout) {
+            timeout.bucket = this;
+            if (head == null) {
+                head = timeout;
+                tail = timeout;
+            } else {
+                tail.next = timeout;
+                timeout.prev = tail;
+                tail = timeout;
+            }
+            size++;
+        }
+
+        private void remove(Timeout timeout) {
+            Timeout next = timeout.next;
+            if (timeout.prev != null) {
+                timeout.prev.next = next;
+            }
+            if (timeout.next != null) {
+                timeout.next.prev = timeout.prev;
+            }
+            if (timeout == head) {
+                head = next;
+            }
+            if (timeout == tail) {
+                tail = timeout.prev;
+            }
+            timeout.prev = null;
+            timeout.next = null;
+            timeout.bucket = null;
+            size--;
+        }
+    }
+
+}
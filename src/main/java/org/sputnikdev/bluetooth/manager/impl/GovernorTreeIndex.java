@@ -0,0 +1,161 @@
+package org.sputnikdev.bluetooth.manager.impl;
+
+/*-
+ * #%L
+ * org.sputnikdev:bluetooth-manager
+ * %%
+ * Copyright (C) 2017 Sputnik Dev
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.sputnikdev.bluetooth.URL;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A hierarchical index (adapter, device, service, characteristic) of governor URLs. It is kept next to the flat
+ * governors map, so that descendants of a given URL can be found by visiting only its subtree instead of checking
+ * every registered governor.
+ *
+ * <p>Intermediate nodes (e.g. services, which do not have governors) are created on demand and removed as soon as
+ * they do not have any registered descendants. URLs are expected to be protocol-less, as the governors map keys are.
+ *
+ * @author Vlad Kolotov
+ */
+class GovernorTreeIndex {
+
+    private final Node root = new Node(null);
+    private final CanonicalURLs canonicalURLs;
+
+    GovernorTreeIndex(CanonicalURLs canonicalURLs) {
+        this.canonicalURLs = canonicalURLs;
+    }
+
+    /**
+     * Adds the given URL to the index.
+     * @param url governor URL
+     */
+    synchronized void add(URL url) {
+        Node node = root;
+        for (URL path : getPath(url)) {
+            node = node.children.computeIfAbsent(path, Node::new);
+        }
+        node.registered = true;
+    }
+
+    /**
+     * Removes the given URL from the index.
+     * @param url governor URL
+     */
+    synchronized void remove(URL url) {
+        List<URL> path = getPath(url);
+        List<Node> nodes = new ArrayList<>(path.size() + 1);
+        Node node = root;
+        nodes.add(node);
+        for (URL element : path) {
+            node = node.children.get(element);
+            if (node == null) {
+                return;
+            }
+            nodes.add(node);
+        }
+        node.registered = false;
+        // prune nodes that do not lead to any registered URL
+        for (int i = nodes.size() - 1; i > 0; i--) {
+            Node current = nodes.get(i);
+            if (current.registered || !current.children.isEmpty()) {
+                break;
+            }
+            nodes.get(i - 1).children.remove(current.url);
+        }
+    }
+
+    /**
+     * Returns all registered descendants of the given URL (not including the URL itself), parents go before
+     * their children.
+     * @param url parent URL, protocol and root URLs match all registered URLs
+     * @return registered descendants
+     */
+    synchronized List<URL> getDescendants(URL url) {
+        Node node = root;
+        for (URL element : getPath(url)) {
+            node = node.children.get(element);
+            if (node == null) {
+                return new ArrayList<>();
+            }
+        }
+        List<URL> descendants = new ArrayList<>();
+        Deque<Node> stack = new ArrayDeque<>(node.children.values());
+        while (!stack.isEmpty()) {
+            Node current = stack.pop();
+            if (current.registered) {
+                descendants.add(current.url);
+            }
+            current.children.values().forEach(stack::push);
+        }
+        return descendants;
+    }
+
+    synchronized void clear() {
+        root.children.clear();
+    }
+
+    synchronized int size() {
+        int size = 0;
+        Deque<Node> stack = new ArrayDeque<>(root.children.values());
+        while (!stack.isEmpty()) {
+            Node current = stack.pop();
+            size += current.registered ? 1 : 0;
+            current.children.values().forEach(stack::push);
+        }
+        return size;
+    }
+
+    private List<URL> getPath(URL url) {
+        URL protocolLess = canonicalURLs.protocolLess(url);
+        List<URL> path = new ArrayList<>(4);
+        if (protocolLess.getAdapterAddress() == null) {
+            return path;
+        }
+        path.add(protocolLess.getAdapterURL());
+        if (protocolLess.getDeviceAddress() != null) {
+            path.add(protocolLess.getDeviceURL());
+            if (protocolLess.getServiceUUID() != null) {
+                path.add(protocolLess.getServiceURL());
+                if (protocolLess.getCharacteristicUUID() != null) {
+                    path.add(protocolLess.getCharacteristicURL());
+                }
+            }
+        }
+        return path;
+    }
+
+    private static final class Node {
+
+        private final URL url;
+        private final Map<URL, Node> children = new HashMap<>();
+        private boolean registered;
+
+        private Node(URL url) {
+            this.url = url;
+        }
+    }
+
+}
@@ -0,0 +1,139 @@
+package org.sputnikdev.bluetooth.manager.impl;
+
+/*-
+ * #%L
+ * org.sputnikdev:bluetooth-manager
+ * %%
+ * Copyright (C) 2017 Sputnik Dev
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * RSSI ingestion stage. Transport notification threads only append RSSI samples to per-device ring buffers
+ * ({@link RssiRingBuffer}) and schedule the devices, a small number of worker threads drain the buffers in batches
+ * through RSSI filters and notify listeners. A device is drained by one worker at a time, therefore samples
+ * of a device are processed in order.
+ *
+ * <p>Scheduled devices are queued in a growable array based ring, so that scheduling a device does not allocate
+ * (the ring grows only when more devices are scheduled at once than ever before).
+ *
+ * @author Vlad Kolotov
+ */
+class RssiIngestion {
+
+    private static final int INITIAL_CAPACITY = 64;
+
+    private Logger logger = LoggerFactory.getLogger(RssiIngestion.class);
+
+    private final ExecutorService workers;
+    private DeviceGovernorImpl[] scheduled = new DeviceGovernorImpl[INITIAL_CAPACITY];
+    private int head;
+    private int size;
+
+    RssiIngestion(int workers) {
+        if (workers <= 0) {
+            throw new IllegalArgumentException("Number of workers must be greater than 0: " + workers);
+        }
+        AtomicInteger counter = new AtomicInteger();
+        this.workers = Executors.newFixedThreadPool(workers, task -> {
+            Thread thread = new Thread(task, "rssi-ingestion-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        for (int i = 0; i < workers; i++) {
+            this.workers.submit(this::work);
+        }
+    }
+
+    /**
+     * Schedules the RSSI buffer of the given device for draining unless it is already scheduled.
+     * @param governor device governor
+     */
+    void schedule(DeviceGovernorImpl governor) {
+        if (governor.getRssiBuffer().schedule()) {
+            enqueue(governor);
+        }
+    }
+
+    synchronized int getBacklog() {
+        return size;
+    }
+
+    void dispose() {
+        workers.shutdownNow();
+        synchronized (this) {
+            Arrays.fill(scheduled, null);
+            size = 0;
+        }
+    }
+
+    private synchronized void enqueue(DeviceGovernorImpl governor) {
+        if (size == scheduled.length) {
+            DeviceGovernorImpl[] grown = new DeviceGovernorImpl[scheduled.length * 2];
+            for (int i = 0; i < size; i++) {
+                grown[i] = scheduled[(head + i) % scheduled.length];
+            }
+            scheduled = grown;
+            head = 0;
+        }
+        scheduled[(head + size) % scheduled.length] = governor;
+        size++;
+        notify();
+    }
+
+    private synchronized DeviceGovernorImpl dequeue() throws InterruptedException {
+        while (size == 0) {
+            wait();
+        }
+        final DeviceGovernorImpl governor = scheduled[head];
+        scheduled[head] = null;
+        head = (head + 1) % scheduled.length;
+        size--;
+        return governor;
+    }
+
+    private void work() {
+        while (!Thread.currentThread().isInterrupted()) {
+            DeviceGovernorImpl governor;
+            try {
+                governor = dequeue();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            RssiRingBuffer buffer = governor.getRssiBuffer();
+            try {
+                governor.drainRSSI();
+            } catch (Exception ex) {
+                logger.warn("Error occurred while processing RSSI readings: " + governor.getURL(), ex);
+            } finally {
+                buffer.unschedule();
+                // samples appended after the last drain but before unscheduling must not be left behind
+                if (!buffer.isEmpty()) {
+                    schedule(governor);
+                }
+            }
+        }
+    }
+
+}
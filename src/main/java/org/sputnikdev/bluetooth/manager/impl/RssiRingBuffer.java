@@ -0,0 +1,118 @@
+package org.sputnikdev.bluetooth.manager.impl;
+
+/*-
+ * #%L
+ * org.sputnikdev:bluetooth-manager
+ * %%
+ * Copyright (C) 2017 Sputnik Dev
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * A bounded ring buffer of RSSI samples (values and timestamps) of a device, backed by primitive arrays
+ * so that appending a sample does not allocate.
+ *
+ * <p>Transport notification threads append samples, the samples are drained later in batches
+ * by {@link RssiIngestion} workers. If the buffer is full, the oldest sample is overwritten and counted as overflown.
+ * The "scheduled" flag makes sure that a buffer is queued for draining at most once at a time.
+ *
+ * @author Vlad Kolotov
+ */
+class RssiRingBuffer {
+
+    static final int DEFAULT_CAPACITY = 64;
+
+    private final short[] values;
+    private final long[] timestamps;
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+    private int head;
+    private int size;
+    private long overflows;
+
+    RssiRingBuffer() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    RssiRingBuffer(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be greater than 0: " + capacity);
+        }
+        values = new short[capacity];
+        timestamps = new long[capacity];
+    }
+
+    /**
+     * Appends a sample, overwrites the oldest one if the buffer is full.
+     * @param value RSSI value
+     * @param timestamp time of the reading
+     * @return true if the oldest sample has been overwritten
+     */
+    synchronized boolean append(short value, long timestamp) {
+        int tail = (head + size) % values.length;
+        values[tail] = value;
+        timestamps[tail] = timestamp;
+        if (size == values.length) {
+            head = (head + 1) % values.length;
+            overflows++;
+            return true;
+        }
+        size++;
+        return false;
+    }
+
+    /**
+     * Moves up to the given arrays length samples from the buffer into the arrays, the oldest first.
+     * @param valuesBatch destination of values
+     * @param timestampsBatch destination of timestamps
+     * @return number of moved samples
+     */
+    synchronized int drainTo(short[] valuesBatch, long[] timestampsBatch) {
+        int count = Math.min(size, Math.min(valuesBatch.length, timestampsBatch.length));
+        for (int i = 0; i < count; i++) {
+            valuesBatch[i] = values[head];
+            timestampsBatch[i] = timestamps[head];
+            head = (head + 1) % values.length;
+        }
+        size -= count;
+        return count;
+    }
+
+    synchronized boolean isEmpty() {
+        return size == 0;
+    }
+
+    synchronized int size() {
+        return size;
+    }
+
+    /**
+     * Returns the total number of samples overwritten before they were drained.
+     * @return number of overwritten samples
+     */
+    synchronized long getOverflows() {
+        return overflows;
+    }
+
+    boolean schedule() {
+        return scheduled.compareAndSet(false, true);
+    }
+
+    void unschedule() {
+        scheduled.set(false);
+    }
+
+}
@@ -35,6 +35,21 @@ public interface Adapter extends BluetoothObject {
 
     boolean isDiscovering();
     void enableDiscoveringNotifications(Notification<Boolean> notification);
+
+    /**
+     * A primitive variant of {@link #enableDiscoveringNotifications(Notification)}. Transports should override it
+     * to deliver events without boxing, by default events are adapted from the boxed notification (null values are
+     * skipped).
+     * @param notification notification
+     */
+    default void enableDiscoveringNotificationsPrimitive(BooleanNotification notification) {
+        enableDiscoveringNotifications(value -> {
+            if (value != null) {
+                notification.notify(value);
+            }
+        });
+    }
+
     void disableDiscoveringNotifications();
     boolean startDiscovery();
     boolean stopDiscovery();
@@ -42,6 +57,21 @@ public interface Adapter extends BluetoothObject {
     boolean isPowered();
     void setPowered(boolean b);
     void enablePoweredNotifications(Notification<Boolean> notification);
+
+    /**
+     * A primitive variant of {@link #enablePoweredNotifications(Notification)}. Transports should override it
+     * to deliver events without boxing, by default events are adapted from the boxed notification (null values are
+     * skipped).
+     * @param notification notification
+     */
+    default void enablePoweredNotificationsPrimitive(BooleanNotification notification) {
+        enablePoweredNotifications(value -> {
+            if (value != null) {
+                notification.notify(value);
+            }
+        });
+    }
+
     void disablePoweredNotifications();
 
     List<Device> getDevices();
@@ -20,6 +20,7 @@ package org.sputnikdev.bluetooth.manager.transport;
  * #L%
  */
 
+import java.nio.ByteBuffer;
 import java.util.Set;
 
 /**
@@ -36,7 +37,36 @@ public interface Characteristic extends BluetoothObject {
 
     byte[] readValue();
 
+    /**
+     * Reads the characteristic value into the given buffer starting at its current position, the position is
+     * advanced by the number of bytes read. Transports should override it to avoid allocating arrays,
+     * by default the value is copied from {@link #readValue()}.
+     * @param destination a buffer to read the value into
+     * @return number of bytes read
+     * @throws java.nio.BufferOverflowException if there is not enough space remaining in the buffer
+     */
+    default int readValue(ByteBuffer destination) {
+        byte[] value = readValue();
+        destination.put(value);
+        return value.length;
+    }
+
     boolean writeValue(byte[] data);
 
     void enableValueNotifications(Notification<byte[]> notification);
+
+    /**
+     * A buffer based overload of {@link #enableValueNotifications(Notification)}. Transports should override it
+     * to deliver values from reusable buffers. By default arrays are passed straight through if the notification
+     * accepts them too (implements {@link Notification}), otherwise they are wrapped into buffers.
+     * @param notification notification
+     */
+    @SuppressWarnings("unchecked")
+    default void enableValueNotifications(BufferNotification notification) {
+        if (notification instanceof Notification) {
+            enableValueNotifications((Notification<byte[]>) notification);
+        } else {
+            enableValueNotifications((Notification<byte[]>) value -> notification.notify(ByteBuffer.wrap(value)));
+        }
+    }
 }
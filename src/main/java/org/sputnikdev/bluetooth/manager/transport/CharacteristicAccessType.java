@@ -1,8 +1,9 @@
 package org.sputnikdev.bluetooth.manager.transport;
 
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumSet;
 import java.util.Set;
-import java.util.stream.Collectors;
-import java.util.stream.Stream;
 
 /**
  * Characteristic properties (access type).
@@ -19,26 +20,77 @@ public enum CharacteristicAccessType {
     AUTHENTICATED_SIGNED_WRITES(0x40),
     EXTENDED_PROPERTIES(0x80);
 
+    // lookup tables covering all 256 combinations of the characteristic properties
+    private static final CharacteristicAccessType[] BY_BIT_FIELD = createBitFieldTable();
+    private static final Set<CharacteristicAccessType>[] PARSED = createParsedTable();
+
     int bitField;
 
     CharacteristicAccessType(int bitField) {
         this.bitField = bitField;
     }
 
+    /**
+     * Returns the bit of the access type in the characteristic properties bit field.
+     * @return access type bit
+     */
     public int getBitField() {
         return bitField;
     }
 
+    /**
+     * Returns an access type by its bit in the characteristic properties bit field.
+     * @param bitField access type bit
+     * @return access type or null if the provided bit field does not match exactly one access type
+     */
     public static CharacteristicAccessType fromBitField(int bitField) {
-        return Stream.of(CharacteristicAccessType.values())
-                .filter(c -> c.bitField == bitField)
-                .findFirst().orElse(null);
+        return bitField >= 0 && bitField < BY_BIT_FIELD.length ? BY_BIT_FIELD[bitField] : null;
     }
 
+    /**
+     * Parses characteristic properties bit field. Returned sets are precomputed, shared and immutable.
+     * @param flags characteristic properties bit field, only the least significant byte is taken into account
+     * @return an immutable set of access types
+     */
     public static Set<CharacteristicAccessType> parse(int flags) {
-        return Stream.of(CharacteristicAccessType.values())
-                .filter(c -> (c.bitField & flags) > 0)
-                .collect(Collectors.toSet());
+        return PARSED[flags & 0xFF];
+    }
+
+    /**
+     * Converts a collection of access types into the characteristic properties bit field.
+     * @param flags access types
+     * @return characteristic properties bit field
+     */
+    public static int toBitField(Collection<CharacteristicAccessType> flags) {
+        int bitField = 0;
+        for (CharacteristicAccessType flag : flags) {
+            bitField |= flag.bitField;
+        }
+        return bitField;
+    }
+
+    private static CharacteristicAccessType[] createBitFieldTable() {
+        CharacteristicAccessType[] table = new CharacteristicAccessType[256];
+        for (CharacteristicAccessType value : values()) {
+            table[value.bitField] = value;
+        }
+        return table;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Set<CharacteristicAccessType>[] createParsedTable() {
+        CharacteristicAccessType[] values = values();
+        Set<CharacteristicAccessType>[] parsed = new Set[256];
+        for (int flags = 0; flags < parsed.length; flags++) {
+            EnumSet<CharacteristicAccessType> set = EnumSet.noneOf(CharacteristicAccessType.class);
+            for (CharacteristicAccessType value : values) {
+                if ((value.bitField & flags) != 0) {
+                    set.add(value);
+                }
+            }
+            parsed[flags] = Collections.unmodifiableSet(set);
+        }
+        return parsed;
     }
 
 }
@@ -49,6 +49,20 @@ public interface Device extends BluetoothObject {
 
     void enableBlockedNotifications(Notification<Boolean> notification);
 
+    /**
+     * A primitive variant of {@link #enableBlockedNotifications(Notification)}. Transports should override it
+     * to deliver events without boxing, by default events are adapted from the boxed notification (null values are
+     * skipped).
+     * @param notification notification
+     */
+    default void enableBlockedNotificationsPrimitive(BooleanNotification notification) {
+        enableBlockedNotifications(value -> {
+            if (value != null) {
+                notification.notify(value);
+            }
+        });
+    }
+
     void disableBlockedNotifications();
 
     void setBlocked(boolean blocked);
@@ -59,18 +73,60 @@ public interface Device extends BluetoothObject {
 
     void enableRSSINotifications(Notification<Short> notification);
 
+    /**
+     * A primitive variant of {@link #enableRSSINotifications(Notification)}. Transports should override it
+     * to deliver RSSI readings without boxing, by default readings are adapted from the boxed notification
+     * (null values are skipped).
+     * @param notification notification
+     */
+    default void enableRSSINotificationsPrimitive(ShortNotification notification) {
+        enableRSSINotifications(value -> {
+            if (value != null) {
+                notification.notify(value);
+            }
+        });
+    }
+
     void disableRSSINotifications();
 
     boolean isConnected();
 
     void enableConnectedNotifications(Notification<Boolean> notification);
 
+    /**
+     * A primitive variant of {@link #enableConnectedNotifications(Notification)}. Transports should override it
+     * to deliver events without boxing, by default events are adapted from the boxed notification (null values are
+     * skipped).
+     * @param notification notification
+     */
+    default void enableConnectedNotificationsPrimitive(BooleanNotification notification) {
+        enableConnectedNotifications(value -> {
+            if (value != null) {
+                notification.notify(value);
+            }
+        });
+    }
+
     void disableConnectedNotifications();
 
     boolean isServicesResolved();
 
     void enableServicesResolvedNotifications(Notification<Boolean> notification);
 
+    /**
+     * A primitive variant of {@link #enableServicesResolvedNotifications(Notification)}. Transports should
+     * override it to deliver events without boxing, by default events are adapted from the boxed notification
+     * (null values are skipped).
+     * @param notification notification
+     */
+    default void enableServicesResolvedNotificationsPrimitive(BooleanNotification notification) {
+        enableServicesResolvedNotifications(value -> {
+            if (value != null) {
+                notification.notify(value);
+            }
+        });
+    }
+
     void disableServicesResolvedNotifications();
 
     List<Service> getServices();
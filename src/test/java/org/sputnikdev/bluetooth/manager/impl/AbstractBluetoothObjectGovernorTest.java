@@ -17,6 +17,7 @@ import org.sputnikdev.bluetooth.manager.NotReadyException;
 import org.sputnikdev.bluetooth.manager.transport.BluetoothObject;
 
 import java.util.Date;
+import java.util.concurrent.CompletableFuture;
 import java.util.function.Function;
 
 import static org.junit.Assert.assertEquals;
@@ -181,6 +182,78 @@ public class AbstractBluetoothObjectGovernorTest {
         assertNull(Whitebox.getInternalState(governor, "bluetoothObject"));
     }
 
+    @Test
+    public void testWhenReady() {
+        Whitebox.setInternalState(governor, "bluetoothObject", null);
+        CompletableFuture<Void> future = governor.whenReady();
+        assertFalse(future.isDone());
+        verify(bluetoothManager).scheduleUpdate(governor);
+        verify(bluetoothManager).scheduleReadinessTimeout(future, governor.getURL());
+
+        governor.update();
+        assertTrue(future.isDone());
+        assertFalse(future.isCompletedExceptionally());
+
+        // already ready
+        assertTrue(governor.whenReady().isDone());
+        verify(bluetoothManager, times(1)).scheduleUpdate(governor);
+    }
+
+    @Test
+    public void testWhenReadyDisposed() {
+        Whitebox.setInternalState(governor, "bluetoothObject", null);
+        CompletableFuture<Void> future = governor.whenReady();
+        governor.dispose();
+        assertTrue(future.isCompletedExceptionally());
+        assertTrue(governor.whenReady().isCompletedExceptionally());
+    }
+
+    @Test
+    public void testDeferUpdate() throws Exception {
+        Whitebox.setInternalState(governor, "bluetoothObject", null);
+        governor.update();
+
+        // no activity since the last update
+        assertFalse(governor.deferUpdate(10000));
+
+        // some activity happened after the last update
+        Thread.sleep(2);
+        governor.updateLastChanged();
+        for (int i = 0; i < AbstractBluetoothObjectGovernor.MAX_DEFERRED_UPDATES; i++) {
+            assertTrue(governor.deferUpdate(10000));
+        }
+        // too many deferred updates in a row
+        assertFalse(governor.deferUpdate(10000));
+
+        governor.update();
+        Thread.sleep(2);
+        governor.updateLastChanged();
+        assertTrue(governor.deferUpdate(10000));
+
+        // activity is too old
+        Thread.sleep(2);
+        assertFalse(governor.deferUpdate(1));
+    }
+
+    @Test
+    public void testDeferUpdateRequested() throws Exception {
+        Whitebox.setInternalState(governor, "bluetoothObject", null);
+        governor.update();
+        Thread.sleep(2);
+        governor.updateLastChanged();
+
+        governor.requestUpdate();
+        assertFalse(governor.deferUpdate(10000));
+
+        governor.update();
+        Thread.sleep(2);
+        governor.updateLastChanged();
+        assertTrue(governor.deferUpdate(10000));
+
+        when(governor.isSteady()).thenReturn(false);
+        assertFalse(governor.deferUpdate(10000));
+    }
+
     @Test
     public void testGetURL() throws Exception {
         assertEquals(URL, governor.getURL());
@@ -262,7 +335,7 @@ public class AbstractBluetoothObjectGovernorTest {
     @Test
     public void testNotifyLastChanged() {
         Date date = new Date();
-        Whitebox.setInternalState(governor, "lastActivity", date);
+        Whitebox.setInternalState(governor, "lastActivity", date.getTime());
         governor.addGovernorListener(governorListener);
 
         governor.notifyLastChanged();
@@ -273,7 +346,7 @@ public class AbstractBluetoothObjectGovernorTest {
     @Test
     public void testNotifyLastChangedException() {
         Date date = new Date();
-        Whitebox.setInternalState(governor, "lastActivity", date);
+        Whitebox.setInternalState(governor, "lastActivity", date.getTime());
         governor.addGovernorListener(governorListener);
         doThrow(Exception.class).when(governorListener).lastUpdatedChanged(any());
 
@@ -21,6 +21,7 @@ import org.sputnikdev.bluetooth.manager.CharacteristicGovernor;
 import org.sputnikdev.bluetooth.manager.DeviceGovernor;
 import org.sputnikdev.bluetooth.manager.transport.Adapter;
 import org.sputnikdev.bluetooth.manager.transport.BluetoothObjectFactory;
+import org.sputnikdev.bluetooth.manager.transport.BooleanNotification;
 import org.sputnikdev.bluetooth.manager.transport.Device;
 import org.sputnikdev.bluetooth.manager.transport.Notification;
 
@@ -75,9 +76,9 @@ public class AdapterGovernorImplTest {
     private BluetoothObjectFactory bluetoothObjectFactory;
 
     @Captor
-    private ArgumentCaptor<Notification<Boolean>> poweredCaptor;
+    private ArgumentCaptor<BooleanNotification> poweredCaptor;
     @Captor
-    private ArgumentCaptor<Notification<Boolean>> discoveringCaptor;
+    private ArgumentCaptor<BooleanNotification> discoveringCaptor;
 
     @Spy
     @InjectMocks
@@ -92,8 +93,8 @@ public class AdapterGovernorImplTest {
         when(adapter.isDiscovering()).thenReturn(DISCOVERING);
         when(adapter.getAlias()).thenReturn(ALIAS);
         when(adapter.getName()).thenReturn(NAME);
-        doNothing().when(adapter).enablePoweredNotifications(poweredCaptor.capture());
-        doNothing().when(adapter).enableDiscoveringNotifications(discoveringCaptor.capture());
+        doNothing().when(adapter).enablePoweredNotificationsPrimitive(poweredCaptor.capture());
+        doNothing().when(adapter).enableDiscoveringNotificationsPrimitive(discoveringCaptor.capture());
         governor.addAdapterListener(listener);
 
         when(adapter.getURL()).thenReturn(URL);
@@ -107,8 +108,8 @@ public class AdapterGovernorImplTest {
     public void testInit() {
         governor.init(adapter);
 
-        verify(adapter, times(1)).enablePoweredNotifications(poweredCaptor.getValue());
-        verify(adapter, times(1)).enableDiscoveringNotifications(discoveringCaptor.getValue());
+        verify(adapter, times(1)).enablePoweredNotificationsPrimitive(poweredCaptor.getValue());
+        verify(adapter, times(1)).enableDiscoveringNotificationsPrimitive(discoveringCaptor.getValue());
 
         verifyNoMoreInteractions(listener, adapter);
 
@@ -429,14 +430,14 @@ public class AdapterGovernorImplTest {
     public void testAdapterPoweredNotification() {
         when(adapter.isPowered()).thenReturn(false).thenReturn(true).thenReturn(false);
 
-        ArgumentCaptor<Notification> notificationCaptor = ArgumentCaptor.forClass(Notification.class);
+        ArgumentCaptor<BooleanNotification> notificationCaptor = ArgumentCaptor.forClass(BooleanNotification.class);
 
-        doNothing().when(adapter).enablePoweredNotifications(notificationCaptor.capture());
+        doNothing().when(adapter).enablePoweredNotificationsPrimitive(notificationCaptor.capture());
 
         // init method will enable notifications, if they are not enabled already
         governor.init(adapter);
 
-        verify(adapter, times(1)).enablePoweredNotifications(notificationCaptor.getValue());
+        verify(adapter, times(1)).enablePoweredNotificationsPrimitive(notificationCaptor.getValue());
 
         notificationCaptor.getValue().notify(Boolean.TRUE);
 
@@ -449,14 +450,14 @@ public class AdapterGovernorImplTest {
     public void testAdapterDiscoveringNotification() {
         when(adapter.isDiscovering()).thenReturn(false).thenReturn(true);
 
-        ArgumentCaptor<Notification> notificationCaptor = ArgumentCaptor.forClass(Notification.class);
+        ArgumentCaptor<BooleanNotification> notificationCaptor = ArgumentCaptor.forClass(BooleanNotification.class);
 
-        doNothing().when(adapter).enableDiscoveringNotifications(notificationCaptor.capture());
+        doNothing().when(adapter).enableDiscoveringNotificationsPrimitive(notificationCaptor.capture());
 
         // init method will enable notifications, if they are not enabled already
         governor.init(adapter);
 
-        verify(adapter, times(1)).enableDiscoveringNotifications(notificationCaptor.getValue());
+        verify(adapter, times(1)).enableDiscoveringNotificationsPrimitive(notificationCaptor.getValue());
 
         notificationCaptor.getValue().notify(Boolean.TRUE);
 
@@ -8,20 +8,43 @@ import org.mockito.Mock;
 import org.powermock.modules.junit4.PowerMockRunner;
 import org.powermock.reflect.Whitebox;
 import org.sputnikdev.bluetooth.URL;
+import org.sputnikdev.bluetooth.manager.BluetoothGovernor;
+import org.sputnikdev.bluetooth.manager.CharacteristicGovernor;
+import org.sputnikdev.bluetooth.manager.DeviceGovernor;
 import org.sputnikdev.bluetooth.manager.DiscoveredAdapter;
+import org.sputnikdev.bluetooth.manager.NotReadyException;
 import org.sputnikdev.bluetooth.manager.transport.Adapter;
 import org.sputnikdev.bluetooth.manager.transport.BluetoothObject;
 import org.sputnikdev.bluetooth.manager.transport.BluetoothObjectFactory;
 import org.sputnikdev.bluetooth.manager.transport.Characteristic;
 import org.sputnikdev.bluetooth.manager.transport.Device;
 
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.reset;
@@ -174,6 +197,226 @@ public class BluetoothManagerImplTest {
         assertResetGovernors(1, 1, new URL("/"));
     }
 
+    @Test
+    public void testScheduleUpdateCoalescing() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch finished = new CountDownLatch(2);
+        BluetoothObjectGovernor governor = mock(BluetoothObjectGovernor.class);
+        when(governor.getURL()).thenReturn(TINYB_DEVICE_URL);
+        doAnswer(answer -> {
+            started.countDown();
+            release.await();
+            finished.countDown();
+            return null;
+        }).when(governor).update();
+
+        bluetoothManager.scheduleUpdate(governor);
+        assertTrue(started.await(1, TimeUnit.SECONDS));
+
+        // the first one is being executed, only one of the following requests must be queued
+        long coalesced = bluetoothManager.getStatistics().getCoalescedUpdates();
+        for (int i = 0; i < 10; i++) {
+            bluetoothManager.scheduleUpdate(governor);
+        }
+        assertEquals(coalesced + 9, bluetoothManager.getStatistics().getCoalescedUpdates());
+
+        release.countDown();
+        assertTrue(finished.await(1, TimeUnit.SECONDS));
+        verify(governor, times(2)).update();
+    }
+
+    @Test
+    public void testGovernorCreationConcurrency() throws Exception {
+        CountDownLatch initStarted = new CountDownLatch(1);
+        CountDownLatch releaseInit = new CountDownLatch(1);
+        Map<URL, BluetoothObjectGovernor> created = new ConcurrentHashMap<>();
+        BluetoothManagerImpl manager = new BluetoothManagerImpl() {
+            @Override BluetoothObjectGovernor createGovernor(URL url) {
+                BluetoothObjectGovernor governor = mock(BluetoothObjectGovernor.class);
+                when(governor.getURL()).thenReturn(url);
+                when(governor.isReady()).thenReturn(true);
+                if (url.equals(TINYB_DEVICE_URL.copyWithProtocol(null))) {
+                    doAnswer(answer -> {
+                        initStarted.countDown();
+                        releaseInit.await();
+                        return null;
+                    }).when(governor).init();
+                }
+                assertNull(created.put(url, governor));
+                return governor;
+            }
+        };
+        try {
+            ExecutorService executor = Executors.newFixedThreadPool(4);
+            Future<BluetoothGovernor> first = executor.submit(() -> manager.getGovernor(TINYB_DEVICE_URL));
+            assertTrue(initStarted.await(1, TimeUnit.SECONDS));
+            Future<BluetoothGovernor> second = executor.submit(() -> manager.getGovernor(TINYB_DEVICE_URL));
+
+            // a slow initialization does not block creation of other governors
+            BluetoothGovernor other = executor.submit(() -> manager.getGovernor(DBUS_DEVICE_URL))
+                    .get(1, TimeUnit.SECONDS);
+            assertEquals(created.get(DBUS_DEVICE_URL.copyWithProtocol(null)), other);
+            // concurrent callers for the same URL wait until the governor is initialized
+            Thread.sleep(50);
+            assertFalse(second.isDone());
+
+            releaseInit.countDown();
+            BluetoothObjectGovernor governor = created.get(TINYB_DEVICE_URL.copyWithProtocol(null));
+            assertEquals(governor, first.get(1, TimeUnit.SECONDS));
+            assertEquals(governor, second.get(1, TimeUnit.SECONDS));
+            verify(governor, times(1)).init();
+            executor.shutdown();
+        } finally {
+            manager.dispose();
+        }
+    }
+
+    @Test
+    public void testGovernorIndexConsistency() throws Exception {
+        BluetoothManagerImpl manager = new BluetoothManagerImpl() {
+            @Override BluetoothObjectGovernor createGovernor(URL url) {
+                BluetoothObjectGovernor governor = mock(BluetoothObjectGovernor.class);
+                when(governor.getURL()).thenReturn(url);
+                when(governor.isReady()).thenReturn(true);
+                return governor;
+            }
+        };
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int thread = 0; thread < 4; thread++) {
+                int seed = thread;
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < 500; i++) {
+                        URL device = TINYB_ADAPTER_URL.copyWithDevice(String.format("12:34:56:78:90:%02X", i % 7));
+                        switch ((i + seed) % 3) {
+                            case 0:
+                                manager.getGovernor(device.copyWith("0000180f-0000-1000-8000-00805f9b34fb",
+                                        "00002a19-0000-1000-8000-00805f9b34fb"));
+                                manager.getGovernor(device);
+                                break;
+                            case 1:
+                                manager.disposeGovernor(device);
+                                break;
+                            default:
+                                manager.disposeDescendantGovernors(device);
+                        }
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get(10, TimeUnit.SECONDS);
+            }
+            GovernorTreeIndex index = Whitebox.getInternalState(manager, "governorIndex");
+            assertEquals(manager.getRegisteredGovernors(), new HashSet<>(index.getDescendants(new URL())));
+        } finally {
+            executor.shutdownNow();
+            manager.dispose();
+        }
+    }
+
+    @Test
+    public void testAcquireDeviceAsyncConnected() throws Exception {
+        when(tinybDevice.isConnected()).thenReturn(true);
+        when(tinybDevice.isServicesResolved()).thenReturn(true);
+
+        CompletableFuture<DeviceGovernor> future =
+                bluetoothManager.acquireDeviceAsync(TINYB_DEVICE_URL, Duration.ofSeconds(5));
+
+        DeviceGovernor deviceGovernor = future.get(1, TimeUnit.SECONDS);
+        assertEquals(bluetoothManager.getDeviceGovernor(TINYB_DEVICE_URL), deviceGovernor);
+        assertTrue(deviceGovernor.getConnectionControl());
+    }
+
+    @Test
+    public void testAcquireDeviceAsyncServicesResolved() throws Exception {
+        DeviceGovernorImpl deviceGovernor = (DeviceGovernorImpl) bluetoothManager.getDeviceGovernor(TINYB_DEVICE_URL);
+
+        CompletableFuture<DeviceGovernor> future =
+                bluetoothManager.acquireDeviceAsync(TINYB_DEVICE_URL, Duration.ofSeconds(5));
+        // the device is acquired by the command lane
+        long deadline = System.currentTimeMillis() + 1000;
+        while (!deviceGovernor.getConnectionControl() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(1);
+        }
+        assertFalse(future.isDone());
+
+        deviceGovernor.notifyServicesResolved(Collections.emptyList());
+        assertEquals(deviceGovernor, future.get(1, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testAcquireDeviceAsyncTimeout() throws Exception {
+        CompletableFuture<DeviceGovernor> future =
+                bluetoothManager.acquireDeviceAsync(TINYB_DEVICE_URL, Duration.ofMillis(50));
+        try {
+            future.get(1, TimeUnit.SECONDS);
+            fail("Timeout exception expected");
+        } catch (ExecutionException ex) {
+            assertTrue(ex.getCause() instanceof TimeoutException);
+        }
+    }
+
+    @Test
+    public void testReadAsyncReadinessTimeout() throws Exception {
+        bluetoothManager.setReadinessTimeout(1);
+        // the characteristic is not provided by the transport, it never becomes ready
+        URL url = TINYB_DEVICE_URL.copyWith("0000180f-0000-1000-8000-00805f9b34fb",
+                "00002a20-0000-1000-8000-00805f9b34fb");
+        CompletableFuture<byte[]> future = bluetoothManager.getCharacteristicGovernor(url).readAsync();
+        try {
+            future.get(3, TimeUnit.SECONDS);
+            fail("Timeout exception expected");
+        } catch (ExecutionException ex) {
+            assertTrue(ex.getCause() instanceof TimeoutException);
+        }
+    }
+
+    @Test
+    public void testReadAsyncDisposed() throws Exception {
+        CharacteristicGovernor governor = bluetoothManager.getCharacteristicGovernor(TINYB_CHARACTERISTIC_URL);
+        bluetoothManager.dispose();
+        CompletableFuture<byte[]> future = governor.readAsync();
+        try {
+            future.get(1, TimeUnit.SECONDS);
+            fail("Not ready exception expected");
+        } catch (ExecutionException ex) {
+            assertTrue(ex.getCause() instanceof NotReadyException);
+        }
+    }
+
+    @Test
+    public void testAcquireDeviceAsyncDisposed() throws Exception {
+        bluetoothManager.dispose();
+        CompletableFuture<DeviceGovernor> future =
+                bluetoothManager.acquireDeviceAsync(TINYB_DEVICE_URL, Duration.ofSeconds(5));
+        try {
+            future.get(1, TimeUnit.SECONDS);
+            fail("Rejected execution expected");
+        } catch (ExecutionException ex) {
+            assertTrue(ex.getCause() instanceof RejectedExecutionException);
+        }
+        // the governor has not been created
+        assertFalse(bluetoothManager.getRegisteredGovernors().contains(TINYB_DEVICE_URL.copyWithProtocol(null)));
+    }
+
+    @Test
+    public void testAcquireDeviceAsyncCommandsRejected() throws Exception {
+        // commands are rejected even though the timeout could still be scheduled, the caller must not wait for it
+        ExecutorService executor = Whitebox.getInternalState(bluetoothManager, "commandExecutor");
+        executor.shutdown();
+        CompletableFuture<DeviceGovernor> acquired =
+                bluetoothManager.acquireDeviceAsync(TINYB_DEVICE_URL, Duration.ofMinutes(1));
+        try {
+            acquired.get(1, TimeUnit.SECONDS);
+            fail("Rejected execution expected");
+        } catch (ExecutionException ex) {
+            assertTrue(ex.getCause() instanceof RejectedExecutionException);
+        }
+        assertFalse(bluetoothManager.getRegisteredGovernors().contains(TINYB_DEVICE_URL.copyWithProtocol(null)));
+    }
+
     @Test
     public void testUnregisterFactory() throws Exception {
         AdapterGovernorImpl tinybAdapterGovernor = (AdapterGovernorImpl)
@@ -0,0 +1,87 @@
+package org.sputnikdev.bluetooth.manager.impl;
+
+import org.junit.Test;
+import org.sputnikdev.bluetooth.URL;
+import org.sputnikdev.bluetooth.manager.CombinedGovernor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class CanonicalURLsTest {
+
+    private static final String SERVICE = "0000180f-0000-1000-8000-00805f9b34fb";
+    private static final URL CHARACTERISTIC_URL = new URL("tinyb://11:22:33:44:55:66/12:34:56:78:90:12/"
+            + SERVICE + "/00002a19-0000-1000-8000-00805f9b34fb");
+
+    private final CanonicalURLs canonicalURLs = new CanonicalURLs();
+
+    @Test
+    public void testCanonical() {
+        URL url = new URL(CHARACTERISTIC_URL.toString());
+        assertSame(canonicalURLs.canonical(CHARACTERISTIC_URL), canonicalURLs.canonical(url));
+        assertSame(CHARACTERISTIC_URL, canonicalURLs.canonical(url));
+    }
+
+    @Test
+    public void testDerived() {
+        URL protocolLess = canonicalURLs.protocolLess(CHARACTERISTIC_URL);
+        assertEquals(CHARACTERISTIC_URL.copyWithProtocol(null), protocolLess);
+        assertSame(protocolLess, canonicalURLs.protocolLess(new URL(CHARACTERISTIC_URL.toString())));
+        assertSame(protocolLess, canonicalURLs.protocolLess(protocolLess));
+        assertSame(protocolLess, canonicalURLs.canonical(CHARACTERISTIC_URL.copyWithProtocol(null)));
+
+        URL adapter = canonicalURLs.adapter(CHARACTERISTIC_URL);
+        assertEquals(new URL("/11:22:33:44:55:66"), adapter);
+        assertSame(adapter, canonicalURLs.adapter(protocolLess));
+        assertSame(adapter, canonicalURLs.adapter(adapter));
+
+        URL combined = canonicalURLs.combined(protocolLess);
+        assertEquals(protocolLess.copyWithAdapter(CombinedGovernor.COMBINED_ADDRESS), combined);
+        assertSame(combined, canonicalURLs.combined(protocolLess));
+        assertSame(combined, canonicalURLs.combined(combined));
+        // protocol is preserved
+        assertEquals(CHARACTERISTIC_URL.copyWithAdapter(CombinedGovernor.COMBINED_ADDRESS),
+                canonicalURLs.combined(CHARACTERISTIC_URL));
+
+        URL deviceURL = CHARACTERISTIC_URL.getDeviceURL();
+        URL service = canonicalURLs.service(deviceURL, SERVICE);
+        assertEquals(deviceURL.copyWithService(SERVICE), service);
+        assertSame(service, canonicalURLs.service(new URL(deviceURL.toString()), SERVICE));
+    }
+
+    @Test
+    public void testPerInstance() {
+        CanonicalURLs other = new CanonicalURLs();
+        URL url = canonicalURLs.canonical(CHARACTERISTIC_URL);
+        for (int i = 0; i < CanonicalURLs.MAX_SIZE; i++) {
+            other.canonical(new URL("/11:22:33:44:55:66/00:00:00:00:" + String.format("%02X:%02X",
+                    i >> 8 & 0xFF, i & 0xFF)));
+        }
+        // churn of another cache does not evict flyweights of this one
+        assertSame(url, canonicalURLs.canonical(new URL(CHARACTERISTIC_URL.toString())));
+        assertEquals(1, canonicalURLs.size());
+    }
+
+    @Test
+    public void testBounded() {
+        URL live = canonicalURLs.canonical(new URL("/11:22:33:44:55:66"));
+        URL stale = canonicalURLs.canonical(new URL("/11:22:33:44:55:66/FF:FF:FF:FF:FF:FF"));
+        for (int i = 0; i < 2 * CanonicalURLs.MAX_SIZE; i++) {
+            canonicalURLs.canonical(new URL("/11:22:33:44:55:66/00:00:00:" + String.format("%02X:%02X:%02X",
+                    i >> 16 & 0xFF, i >> 8 & 0xFF, i & 0xFF)));
+            if (i % 1024 == 0) {
+                // a governor keeps using its URL
+                assertSame(live, canonicalURLs.canonical(new URL("/11:22:33:44:55:66")));
+            }
+            assertTrue(canonicalURLs.size() <= CanonicalURLs.MAX_SIZE);
+        }
+        // frequently used flyweights survive the scan storm, unused ones get evicted, equal URLs still work
+        assertSame(live, canonicalURLs.canonical(new URL("/11:22:33:44:55:66")));
+        URL evicted = canonicalURLs.canonical(new URL("/11:22:33:44:55:66/FF:FF:FF:FF:FF:FF"));
+        assertNotSame(stale, evicted);
+        assertEquals(stale, evicted);
+    }
+
+}
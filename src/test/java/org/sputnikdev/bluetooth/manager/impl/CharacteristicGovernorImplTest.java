@@ -0,0 +1,365 @@
+package org.sputnikdev.bluetooth.manager.impl;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.internal.util.reflection.Whitebox;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.sputnikdev.bluetooth.URL;
+import org.sputnikdev.bluetooth.manager.BufferValueListener;
+import org.sputnikdev.bluetooth.manager.NotReadyException;
+import org.sputnikdev.bluetooth.manager.transport.BufferNotification;
+import org.sputnikdev.bluetooth.manager.transport.Characteristic;
+import org.sputnikdev.bluetooth.manager.transport.CharacteristicAccessType;
+import org.sputnikdev.bluetooth.manager.transport.Notification;
+
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class CharacteristicGovernorImplTest {
+
+    private static final URL URL = new URL("/11:22:33:44:55:66/12:34:56:78:90:12/"
+            + "0000180f-0000-1000-8000-00805f9b34fb/00002a19-0000-1000-8000-00805f9b34fb");
+    private static final byte[] VALUE = {1, 2, 3};
+
+    private Characteristic characteristic = mock(Characteristic.class);
+    private BluetoothManagerImpl bluetoothManager = mock(BluetoothManagerImpl.class);
+
+    @Captor
+    private ArgumentCaptor<BufferNotification> notificationCaptor;
+
+    private CharacteristicValueCache valueCache = new CharacteristicValueCache();
+
+    private CharacteristicGovernorImpl governor = new CharacteristicGovernorImpl(bluetoothManager, URL);
+
+    @Before
+    public void setUp() {
+        Whitebox.setInternalState(governor, "bluetoothObject", characteristic);
+        when(bluetoothManager.getValueCache()).thenReturn(valueCache);
+    }
+
+    @Test
+    public void testReadSingleFlight() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(characteristic.readValue()).then(invocation -> {
+            started.countDown();
+            release.await();
+            return VALUE.clone();
+        });
+
+        ExecutorService executor = Executors.newFixedThreadPool(5);
+        try {
+            List<Future<byte[]>> reads = new ArrayList<>();
+            reads.add(executor.submit(governor::read));
+            assertTrue(started.await(1, TimeUnit.SECONDS));
+            for (int i = 0; i < 4; i++) {
+                reads.add(executor.submit(governor::read));
+            }
+            // let the other readers join the in-flight read
+            while (governor.getCoalescedReads() < 4) {
+                Thread.sleep(1);
+            }
+            release.countDown();
+
+            for (Future<byte[]> read : reads) {
+                assertArrayEquals(VALUE, read.get(1, TimeUnit.SECONDS));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        verify(characteristic, times(1)).readValue();
+        assertEquals(1, governor.getNativeReads());
+        assertEquals(4, governor.getCoalescedReads());
+
+        // next read goes to the native layer again
+        governor.read();
+        verify(characteristic, times(2)).readValue();
+    }
+
+    @Test
+    public void testReadError() {
+        when(characteristic.readValue()).thenThrow(new IllegalStateException("error"));
+        try {
+            governor.read();
+            fail("Exception expected");
+        } catch (IllegalStateException ignore) {
+            // the error is propagated and the in-flight read is cleared
+        }
+        doReturn(VALUE).when(characteristic).readValue();
+        Whitebox.setInternalState(governor, "bluetoothObject", characteristic);
+        assertArrayEquals(VALUE, governor.read());
+    }
+
+    @Test
+    public void testReadCached() {
+        when(characteristic.readValue()).thenReturn(VALUE);
+        when(characteristic.writeValue(any())).thenReturn(true);
+        valueCache.setPolicy(URL.getCharacteristicUUID(), Duration.ofMinutes(1));
+
+        assertArrayEquals(VALUE, governor.read());
+        assertArrayEquals(VALUE, governor.read());
+        verify(characteristic, times(1)).readValue();
+        assertEquals(1, governor.getCacheHits());
+        assertEquals(1, governor.getCacheMisses());
+
+        // writes invalidate cached value
+        governor.write(new byte[] {4});
+        governor.read();
+        verify(characteristic, times(2)).readValue();
+
+        // and so do notifications
+        when(characteristic.getFlags()).thenReturn(EnumSet.of(CharacteristicAccessType.NOTIFY));
+        governor.addValueListener(data -> { });
+        governor.init(characteristic);
+        governor.update(characteristic);
+        verify(characteristic).enableValueNotifications(notificationCaptor.capture());
+        notificationCaptor.getValue().notify(ByteBuffer.wrap(new byte[] {5}));
+        governor.read();
+        verify(characteristic, times(3)).readValue();
+        assertEquals(1, governor.getCacheHits());
+        assertEquals(3, governor.getCacheMisses());
+    }
+
+    @Test
+    public void testReadWriteAsync() throws Exception {
+        when(bluetoothManager.getCommandLane(URL)).thenReturn(new CommandLane(URL, Runnable::run));
+        when(characteristic.readValue()).thenReturn(VALUE);
+        when(characteristic.writeValue(VALUE)).thenReturn(true);
+
+        assertArrayEquals(VALUE, governor.readAsync().get(1, TimeUnit.SECONDS));
+        assertTrue(governor.writeAsync(VALUE).get(1, TimeUnit.SECONDS));
+        verify(characteristic).writeValue(VALUE);
+        verify(bluetoothManager, never()).scheduleReadinessTimeout(any(), any());
+    }
+
+    @Test
+    public void testReadWriteAsyncRejected() throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        executor.shutdown();
+        when(bluetoothManager.getCommandLane(URL)).thenReturn(new CommandLane(URL, executor));
+        for (CompletableFuture<?> future : Arrays.asList(governor.readAsync(), governor.writeAsync(VALUE))) {
+            try {
+                future.get(1, TimeUnit.SECONDS);
+                fail("Not ready exception expected");
+            } catch (ExecutionException ex) {
+                assertTrue(ex.getCause() instanceof NotReadyException);
+            }
+        }
+        verify(characteristic, never()).readValue();
+        verify(characteristic, never()).writeValue(any());
+    }
+
+    @Test
+    public void testReadWriteAsyncTimeout() throws Exception {
+        when(bluetoothManager.getCommandLane(URL)).thenReturn(new CommandLane(URL, Runnable::run));
+        Whitebox.setInternalState(governor, "bluetoothObject", null);
+        CompletableFuture<byte[]> read = governor.readAsync();
+        CompletableFuture<Boolean> write = governor.writeAsync(VALUE);
+        ArgumentCaptor<CompletableFuture> readiness = ArgumentCaptor.forClass(CompletableFuture.class);
+        verify(bluetoothManager, times(2)).scheduleReadinessTimeout(readiness.capture(), eq(URL));
+        assertFalse(read.isDone());
+        assertFalse(write.isDone());
+
+        // the readiness timeout has elapsed
+        readiness.getAllValues().forEach(future -> future.completeExceptionally(new TimeoutException()));
+        for (CompletableFuture<?> future : Arrays.asList(read, write)) {
+            try {
+                future.get(1, TimeUnit.SECONDS);
+                fail("Timeout expected");
+            } catch (ExecutionException ex) {
+                assertTrue(ex.getCause() instanceof TimeoutException);
+            }
+        }
+        verify(characteristic, never()).readValue();
+        verify(characteristic, never()).writeValue(any());
+    }
+
+    @Test
+    public void testFlagsCached() {
+        when(characteristic.getFlags()).thenReturn(
+                EnumSet.of(CharacteristicAccessType.READ, CharacteristicAccessType.INDICATE));
+        governor.init(characteristic);
+
+        assertTrue(governor.isReadable());
+        assertFalse(governor.isWritable());
+        assertTrue(governor.isNotifiable());
+        assertEquals(EnumSet.of(CharacteristicAccessType.READ, CharacteristicAccessType.INDICATE),
+                governor.getFlags());
+        verify(characteristic, times(1)).getFlags();
+
+        // flags are requested from the native object again once reset
+        governor.reset(characteristic);
+        when(characteristic.getFlags()).thenReturn(EnumSet.of(CharacteristicAccessType.WRITE));
+        assertTrue(governor.isWritable());
+        verify(characteristic, times(2)).getFlags();
+    }
+
+    @Test
+    public void testBufferValueNotification() {
+        when(characteristic.getFlags()).thenReturn(EnumSet.of(CharacteristicAccessType.NOTIFY));
+        List<ByteBuffer> views = new ArrayList<>();
+        List<byte[]> values = new ArrayList<>();
+        BufferValueListener bufferListener = value -> {
+            assertTrue(value.isReadOnly());
+            views.add(value);
+            assertEquals(2, value.get());
+            assertEquals(3, value.get());
+        };
+        governor.addBufferValueListener(bufferListener);
+        BufferValueListener anotherBufferListener = value -> assertEquals(2, value.get());
+        governor.addBufferValueListener(anotherBufferListener);
+        governor.addValueListener(values::add);
+        governor.init(characteristic);
+        governor.update(characteristic);
+        verify(characteristic).enableValueNotifications(notificationCaptor.capture());
+
+        // a transport buffer holding some other data around the value
+        ByteBuffer transportBuffer = ByteBuffer.wrap(new byte[] {1, 2, 3, 4});
+        transportBuffer.position(1).limit(3);
+        notificationCaptor.getValue().notify(transportBuffer);
+
+        assertEquals(1, views.size());
+        // the view shares the transport buffer memory
+        transportBuffer.put(1, (byte) 7);
+        assertEquals(7, views.get(0).get(1));
+        // array based listeners get a copy of the value only
+        assertArrayEquals(new byte[] {2, 3}, values.get(0));
+        assertEquals(1, transportBuffer.position());
+
+        // arrays wrapped by transports are copied too, transports might reuse them
+        governor.removeBufferValueListener(bufferListener);
+        governor.removeBufferValueListener(anotherBufferListener);
+        byte[] value = {5};
+        notificationCaptor.getValue().notify(ByteBuffer.wrap(value));
+        value[0] = 6;
+        assertArrayEquals(new byte[] {5}, values.get(1));
+        assertEquals(1, views.size());
+    }
+
+    @Test
+    public void testLegacyValueNotification() {
+        LegacyCharacteristic legacy = new LegacyCharacteristic();
+        Whitebox.setInternalState(governor, "bluetoothObject", legacy);
+        List<byte[]> values = new ArrayList<>();
+        List<ByteBuffer> views = new ArrayList<>();
+        governor.addValueListener(values::add);
+        governor.init(legacy);
+        governor.update(legacy);
+
+        // arrays of transports that do not supply buffers are passed straight through
+        byte[] value = {1, 2};
+        legacy.notification.notify(value);
+        assertSame(value, values.get(0));
+
+        // buffers are only built for buffer based listeners
+        governor.addBufferValueListener(views::add);
+        legacy.notification.notify(value);
+        assertSame(value, values.get(1));
+        assertTrue(views.get(0).isReadOnly());
+        // the view wraps the notified array
+        value[0] = 7;
+        assertEquals(7, views.get(0).get(0));
+    }
+
+    @Test
+    public void testReadInto() {
+        when(characteristic.readValue(any(ByteBuffer.class))).then(invocation -> {
+            ((ByteBuffer) invocation.getArguments()[0]).put(VALUE);
+            return VALUE.length;
+        });
+        ByteBuffer buffer = ByteBuffer.allocate(8);
+        buffer.put((byte) 9);
+
+        assertEquals(VALUE.length, governor.readInto(buffer));
+        assertEquals(1 + VALUE.length, buffer.position());
+        assertArrayEquals(new byte[] {9, 1, 2, 3, 0, 0, 0, 0}, buffer.array());
+        verify(characteristic, times(0)).readValue();
+        assertEquals(1, governor.getNativeReads());
+
+        // cacheable characteristics are read through the value cache
+        when(characteristic.readValue()).thenReturn(VALUE);
+        valueCache.setPolicy(URL.getCharacteristicUUID(), Duration.ofMinutes(1));
+        assertEquals(VALUE.length, governor.readInto(ByteBuffer.allocate(8)));
+        buffer = ByteBuffer.allocate(8);
+        assertEquals(VALUE.length, governor.readInto(buffer));
+        assertArrayEquals(new byte[] {1, 2, 3, 0, 0, 0, 0, 0}, buffer.array());
+        verify(characteristic, times(1)).readValue();
+        assertEquals(1, governor.getCacheHits());
+    }
+
+    private static class LegacyCharacteristic implements Characteristic {
+
+        private Notification<byte[]> notification;
+
+        @Override
+        public URL getURL() {
+            return URL;
+        }
+
+        @Override
+        public void dispose() { }
+
+        @Override
+        public Set<CharacteristicAccessType> getFlags() {
+            return EnumSet.of(CharacteristicAccessType.NOTIFY);
+        }
+
+        @Override
+        public boolean isNotifying() {
+            return notification != null;
+        }
+
+        @Override
+        public void disableValueNotifications() {
+            notification = null;
+        }
+
+        @Override
+        public byte[] readValue() {
+            return VALUE;
+        }
+
+        @Override
+        public boolean writeValue(byte[] data) {
+            return true;
+        }
+
+        @Override
+        public void enableValueNotifications(Notification<byte[]> notification) {
+            this.notification = notification;
+        }
+    }
+
+}
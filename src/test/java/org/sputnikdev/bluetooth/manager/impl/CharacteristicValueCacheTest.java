@@ -0,0 +1,127 @@
+package org.sputnikdev.bluetooth.manager.impl;
+
+import org.junit.Test;
+import org.sputnikdev.bluetooth.URL;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class CharacteristicValueCacheTest {
+
+    private static final String BATTERY_LEVEL = "00002a19-0000-1000-8000-00805f9b34fb";
+    private static final String MODEL_NUMBER = "00002a24-0000-1000-8000-00805f9b34fb";
+    private static final URL DEVICE_URL = new URL("/11:22:33:44:55:66/12:34:56:78:90:12");
+    private static final URL BATTERY_URL = DEVICE_URL.copyWith("0000180f-0000-1000-8000-00805f9b34fb", BATTERY_LEVEL);
+    private static final URL MODEL_URL = DEVICE_URL.copyWith("0000180a-0000-1000-8000-00805f9b34fb", MODEL_NUMBER);
+
+    private final AtomicLong clock = new AtomicLong();
+    private final CharacteristicValueCache cache = new CharacteristicValueCache(clock::get);
+
+    @Test
+    public void testPolicies() {
+        assertEquals(0, cache.getTimeToLive(BATTERY_URL));
+
+        cache.setPolicy(Pattern.compile(".*/0000180a-.*"), Duration.ofMinutes(10));
+        cache.setPolicy(BATTERY_LEVEL.toUpperCase(), Duration.ofSeconds(30));
+        assertEquals(TimeUnit.SECONDS.toNanos(30), cache.getTimeToLive(BATTERY_URL));
+        assertEquals(TimeUnit.MINUTES.toNanos(10), cache.getTimeToLive(MODEL_URL));
+
+        // UUID policies take precedence
+        cache.setPolicy(MODEL_NUMBER, Duration.ofSeconds(1));
+        assertEquals(TimeUnit.SECONDS.toNanos(1), cache.getTimeToLive(MODEL_URL));
+
+        cache.setPolicy(BATTERY_LEVEL, Duration.ZERO);
+        assertEquals(0, cache.getTimeToLive(BATTERY_URL));
+    }
+
+    @Test
+    public void testTimeToLive() {
+        cache.put(BATTERY_URL, new byte[] {50}, TimeUnit.SECONDS.toNanos(30));
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(29));
+        assertArrayEquals(new byte[] {50}, cache.get(BATTERY_URL));
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(1));
+        assertNull(cache.get(BATTERY_URL));
+
+        assertEquals(1, cache.getHits());
+        assertEquals(1, cache.getMisses());
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void testLeastRecentlyUsedEviction() {
+        cache.setCapacity(2);
+        URL serviceURL = DEVICE_URL.copyWithService("0000180f-0000-1000-8000-00805f9b34fb");
+        URL first = serviceURL.copyWithCharacteristic("00000001-0000-1000-8000-00805f9b34fb");
+        URL second = serviceURL.copyWithCharacteristic("00000002-0000-1000-8000-00805f9b34fb");
+        URL third = serviceURL.copyWithCharacteristic("00000003-0000-1000-8000-00805f9b34fb");
+        long ttl = TimeUnit.MINUTES.toNanos(1);
+
+        cache.put(first, new byte[] {1}, ttl);
+        cache.put(second, new byte[] {2}, ttl);
+        // first becomes the most recently used
+        cache.get(first);
+        cache.put(third, new byte[] {3}, ttl);
+
+        assertEquals(2, cache.size());
+        assertNull(cache.get(second));
+        assertArrayEquals(new byte[] {1}, cache.get(first));
+        assertArrayEquals(new byte[] {3}, cache.get(third));
+
+        cache.setCapacity(1);
+        assertEquals(1, cache.size());
+        assertArrayEquals(new byte[] {3}, cache.get(third));
+    }
+
+    @Test
+    public void testInvalidate() {
+        byte[] value = {1, 2};
+        cache.put(BATTERY_URL, value, TimeUnit.MINUTES.toNanos(1));
+        // cached values must not be affected by changes of the original array
+        value[0] = 5;
+        byte[] cached = cache.get(BATTERY_URL);
+        assertArrayEquals(new byte[] {1, 2}, cached);
+        cached[0] = 5;
+        assertArrayEquals(new byte[] {1, 2}, cache.get(BATTERY_URL));
+
+        cache.invalidate(BATTERY_URL);
+        assertNull(cache.get(BATTERY_URL));
+    }
+
+    @Test(timeout = 5000)
+    public void testLockFreeReadsAndInvalidations() throws Exception {
+        cache.put(BATTERY_URL, new byte[] {1}, TimeUnit.MINUTES.toNanos(1));
+        CountDownLatch locked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Thread evictor = new Thread(() -> {
+            synchronized (cache) {
+                locked.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException ignore) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+        evictor.start();
+        try {
+            assertTrue(locked.await(1, TimeUnit.SECONDS));
+            // notification threads do not wait for the eviction lock
+            assertArrayEquals(new byte[] {1}, cache.get(BATTERY_URL));
+            cache.invalidate(MODEL_URL);
+            cache.invalidate(BATTERY_URL);
+            assertNull(cache.get(BATTERY_URL));
+        } finally {
+            release.countDown();
+            evictor.join();
+        }
+    }
+
+}
@@ -0,0 +1,139 @@
+package org.sputnikdev.bluetooth.manager.impl;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.powermock.modules.junit4.PowerMockRunner;
+import org.powermock.reflect.Whitebox;
+import org.sputnikdev.bluetooth.URL;
+import org.sputnikdev.bluetooth.manager.AdapterDiscoveryListener;
+import org.sputnikdev.bluetooth.manager.DeviceGovernor;
+import org.sputnikdev.bluetooth.manager.DiscoveredAdapter;
+import org.sputnikdev.bluetooth.manager.GattService;
+import org.sputnikdev.bluetooth.manager.GenericBluetoothDeviceListener;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.assertSame;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@RunWith(PowerMockRunner.class)
+public class CombinedDeviceGovernorImplTest {
+
+    private static final String DEVICE_ADDRESS = "12:34:56:78:90:12";
+    private static final URL COMBINED_URL = new URL("/XX:XX:XX:XX:XX:XX/" + DEVICE_ADDRESS);
+    private static final int ADAPTERS = 100;
+
+    @Mock
+    private BluetoothManagerImpl bluetoothManager;
+
+    private CombinedDeviceGovernorImpl governor;
+    private final List<DeviceGovernor> delegates = new ArrayList<>();
+
+    @Before
+    public void setUp() {
+        when(bluetoothManager.getDeviceGovernor(any(URL.class))).thenAnswer(answer -> {
+            URL url = (URL) answer.getArguments()[0];
+            DeviceGovernor delegate = mock(DeviceGovernor.class);
+            when(delegate.getURL()).thenReturn(url.copyWithProtocol(null));
+            when(delegate.getResolvedServices()).thenReturn(Collections.singletonList(mock(GattService.class)));
+            delegates.add(delegate);
+            return delegate;
+        });
+        governor = new CombinedDeviceGovernorImpl(bluetoothManager, COMBINED_URL);
+
+        // a combined governor spanning many adapters
+        AdapterDiscoveryListener registrar = Whitebox.getInternalState(governor, "delegateRegistrar");
+        for (int i = 0; i < ADAPTERS; i++) {
+            registrar.discovered(new DiscoveredAdapter(
+                    new URL(String.format("tinyb://00:00:00:00:00:%02X", i)), "adapter " + i, null));
+        }
+    }
+
+    @Test
+    public void testDelegateLookup() {
+        assertEquals(ADAPTERS, delegates.size());
+        assertNull(governor.getConnectedAdapter());
+        assertNull(governor.getResolvedServices());
+
+        ConcurrentBitMap connected = Whitebox.getInternalState(governor, "connected");
+        ConcurrentBitMap servicesResolved = Whitebox.getInternalState(governor, "servicesResolved");
+        for (int i = 0; i < ADAPTERS; i++) {
+            DeviceGovernor delegate = delegates.get(i);
+            connected.exclusiveSet(i, true);
+            assertEquals(delegate.getURL(), governor.getConnectedAdapter());
+            servicesResolved.exclusiveSet(i, true);
+            assertSame(delegate.getResolvedServices(), governor.getResolvedServices());
+        }
+    }
+
+    @Test
+    public void testDispose() {
+        ConcurrentBitMap connected = Whitebox.getInternalState(governor, "connected");
+        connected.exclusiveSet(ADAPTERS - 1, true);
+        governor.dispose();
+        assertNull(governor.getConnectedAdapter());
+    }
+
+    @Test
+    public void testNearestAdapter() {
+        assertNull(governor.getLocation());
+        reportDistance(0, 5.0, System.currentTimeMillis());
+        assertEquals(delegates.get(0).getURL().getAdapterURL(), governor.getLocation());
+
+        // not closer enough because of the hysteresis
+        reportDistance(1, 4.8, System.currentTimeMillis());
+        assertEquals(delegates.get(0).getURL().getAdapterURL(), governor.getLocation());
+
+        reportDistance(2, 4.0, System.currentTimeMillis());
+        assertEquals(delegates.get(2).getURL().getAdapterURL(), governor.getLocation());
+
+        // a stale reading loses to a fresh one
+        reportDistance(2, 1.0, System.currentTimeMillis() - 60000);
+        reportDistance(3, 10.0, System.currentTimeMillis());
+        assertEquals(delegates.get(1).getURL().getAdapterURL(), governor.getLocation());
+
+        // the nearest adapter is replaced when it goes offline
+        getHandler(1).offline();
+        assertEquals(delegates.get(0).getURL().getAdapterURL(), governor.getLocation());
+
+        governor.setNearestAdapterHysteresis(0);
+        reportDistance(3, 4.9, System.currentTimeMillis());
+        assertEquals(delegates.get(3).getURL().getAdapterURL(), governor.getLocation());
+
+        // no location when all delegates go offline
+        for (int i = 0; i < 4; i++) {
+            getHandler(i).offline();
+        }
+        assertNull(governor.getLocation());
+        assertEquals(0.0, governor.getEstimatedDistance(), 0.0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidNearestAdapterHysteresis() {
+        assertTrue(governor.getNearestAdapterHysteresis() > 0);
+        governor.setNearestAdapterHysteresis(1);
+    }
+
+    private void reportDistance(int index, double distance, long lastAdvertised) {
+        DeviceGovernor delegate = delegates.get(index);
+        when(delegate.getEstimatedDistance()).thenReturn(distance);
+        when(delegate.getLastAdvertised()).thenReturn(lastAdvertised);
+        getHandler(index).rssiChanged((short) -60);
+    }
+
+    private GenericBluetoothDeviceListener getHandler(int index) {
+        AtomicReferenceArray<?> handlers = Whitebox.getInternalState(governor, "handlers");
+        return (GenericBluetoothDeviceListener) handlers.get(index);
+    }
+
+}
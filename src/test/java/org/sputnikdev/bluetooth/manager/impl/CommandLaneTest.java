@@ -0,0 +1,120 @@
+package org.sputnikdev.bluetooth.manager.impl;
+
+import org.junit.After;
+import org.junit.Test;
+import org.sputnikdev.bluetooth.URL;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class CommandLaneTest {
+
+    private static final URL ADAPTER_URL = new URL("/11:22:33:44:55:66");
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(4);
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testSerialExecution() throws Exception {
+        CommandLane lane = new CommandLane(ADAPTER_URL, executor);
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        List<Integer> order = new CopyOnWriteArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            int index = i;
+            lane.execute(() -> {
+                maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                order.add(index);
+                running.decrementAndGet();
+            });
+        }
+        // all previous commands are accounted once the last one starts
+        CountDownLatch done = new CountDownLatch(1);
+        lane.execute(done::countDown);
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+
+        assertEquals(1, maxRunning.get());
+        for (int i = 0; i < 100; i++) {
+            assertEquals(i, (int) order.get(i));
+        }
+        assertEquals(ADAPTER_URL, lane.getURL());
+        assertTrue(lane.getExecutedCommands() >= 100);
+        assertEquals(0, lane.getQueueDepth());
+        assertTrue(lane.getMaxQueueDepth() >= 1);
+    }
+
+    @Test
+    public void testWaitTimeAndErrors() throws Exception {
+        CommandLane lane = new CommandLane(ADAPTER_URL, executor);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch blocker = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(1);
+        lane.execute(() -> {
+            started.countDown();
+            try {
+                blocker.await();
+            } catch (InterruptedException ignore) { /* do nothing */ }
+            throw new IllegalStateException("error");
+        });
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        lane.execute(done::countDown);
+        assertEquals(1, lane.getQueueDepth());
+
+        Thread.sleep(50);
+        blocker.countDown();
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+
+        assertTrue(lane.getMaxWaitTime() >= 50);
+        assertTrue(lane.getAverageWaitTime() >= 25);
+    }
+
+    @Test
+    public void testShutdown() throws Exception {
+        CommandLane lane = new CommandLane(ADAPTER_URL, executor);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch accepted = new CountDownLatch(1);
+        lane.execute(() -> {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException ignore) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        assertTrue(started.await(1, TimeUnit.SECONDS));
+        lane.execute(accepted::countDown);
+        executor.shutdown();
+        release.countDown();
+        // commands accepted before the executor is shut down are still executed
+        assertTrue(accepted.await(1, TimeUnit.SECONDS));
+        assertTrue(executor.awaitTermination(1, TimeUnit.SECONDS));
+
+        AtomicInteger rejected = new AtomicInteger();
+        for (int i = 0; i < 2; i++) {
+            try {
+                lane.execute(rejected::incrementAndGet);
+                fail("Command must be rejected");
+            } catch (RejectedExecutionException ignore) {
+                // callers learn that the command will never run
+            }
+        }
+        assertEquals(0, rejected.get());
+        assertEquals(0, lane.getQueueDepth());
+    }
+
+}
@@ -0,0 +1,189 @@
+package org.sputnikdev.bluetooth.manager.impl;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ConcurrentBitMapTest {
+
+    private final ConcurrentBitMap bitMap = new ConcurrentBitMap();
+    private final AtomicInteger changed = new AtomicInteger();
+    private final AtomicInteger notChanged = new AtomicInteger();
+
+    @Test
+    public void testCumulativeSet() {
+        assertFalse(bitMap.get());
+        for (int index = 0; index < 200; index++) {
+            bitMap.cumulativeSet(index, true, changed::incrementAndGet, notChanged::incrementAndGet);
+            assertTrue(bitMap.get(index));
+        }
+        assertTrue(bitMap.get());
+        assertEquals(200, bitMap.cardinality());
+        // only the first one changes the overall state
+        assertEquals(1, changed.get());
+        assertEquals(199, notChanged.get());
+
+        // setting the same state again does not change anything
+        bitMap.cumulativeSet(150, true);
+        assertEquals(200, bitMap.cardinality());
+
+        for (int index = 0; index < 200; index++) {
+            bitMap.cumulativeSet(index, false, changed::incrementAndGet);
+            assertFalse(bitMap.get(index));
+        }
+        assertFalse(bitMap.get());
+        assertEquals(0, bitMap.cardinality());
+        assertEquals(2, changed.get());
+
+        // clearing an unknown bit is a no-op
+        bitMap.cumulativeSet(1000, false, changed::incrementAndGet, notChanged::incrementAndGet);
+        assertEquals(2, changed.get());
+        assertFalse(bitMap.get(1000));
+    }
+
+    @Test
+    public void testNoAliasing() {
+        // indexes above 31 must not alias onto lower bits and the highest bit of a word is a normal bit
+        bitMap.cumulativeSet(32, true);
+        assertFalse(bitMap.get(0));
+        assertTrue(bitMap.get(32));
+        bitMap.cumulativeSet(32, false);
+
+        bitMap.cumulativeSet(63, true);
+        assertTrue(bitMap.get());
+        assertEquals(63, bitMap.getUniqueIndex());
+        bitMap.cumulativeSet(64, true);
+        assertEquals(2, bitMap.cardinality());
+        assertFalse(bitMap.get(0));
+    }
+
+    @Test
+    public void testExclusiveSet() {
+        assertEquals(-1, bitMap.getUniqueIndex());
+        bitMap.cumulativeSet(3, true);
+        bitMap.cumulativeSet(70, true);
+        bitMap.cumulativeSet(130, true);
+
+        bitMap.exclusiveSet(100, true, changed::incrementAndGet, notChanged::incrementAndGet);
+        assertEquals(0, changed.get());
+        assertEquals(1, notChanged.get());
+        assertEquals(1, bitMap.cardinality());
+        assertEquals(100, bitMap.getUniqueIndex());
+
+        bitMap.exclusiveSet(5, true);
+        assertEquals(5, bitMap.getUniqueIndex());
+
+        bitMap.exclusiveSet(6, false, changed::incrementAndGet);
+        assertEquals(0, changed.get());
+        bitMap.exclusiveSet(5, false, changed::incrementAndGet);
+        assertEquals(1, changed.get());
+        assertEquals(-1, bitMap.getUniqueIndex());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testGetUniqueIndexMultiple() {
+        bitMap.cumulativeSet(1, true);
+        bitMap.cumulativeSet(100, true);
+        bitMap.getUniqueIndex();
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testInvalidIndex() {
+        bitMap.cumulativeSet(-1, true);
+    }
+
+    @Test
+    public void testCallbackErrorDoesNotStopDelivery() {
+        boolean rethrown = false;
+        try {
+            bitMap.cumulativeSet(0, true, () -> {
+                throw new AssertionError("callback error");
+            });
+        } catch (AssertionError expected) {
+            rethrown = true;
+        }
+        assertTrue(rethrown);
+        bitMap.cumulativeSet(0, false, changed::incrementAndGet);
+        assertEquals(1, changed.get());
+    }
+
+    @Test
+    public void testSlowCallbackDoesNotBlockSetters() throws Exception {
+        CountDownLatch callbackStarted = new CountDownLatch(1);
+        CountDownLatch releaseCallback = new CountDownLatch(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<?> slow = executor.submit(() -> bitMap.cumulativeSet(0, true, () -> {
+                callbackStarted.countDown();
+                try {
+                    releaseCallback.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }));
+            assertTrue(callbackStarted.await(5, TimeUnit.SECONDS));
+
+            // the state changes while the first callback is still running, callbacks are queued in order
+            bitMap.cumulativeSet(0, false, changed::incrementAndGet);
+            assertFalse(bitMap.get());
+            assertEquals(2, bitMap.getSequence());
+            assertEquals(0, changed.get());
+
+            releaseCallback.countDown();
+            slow.get(5, TimeUnit.SECONDS);
+            assertEquals(1, changed.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testCallbacksOrdered() throws Exception {
+        List<Boolean> transitions = new ArrayList<>();
+        AtomicInteger running = new AtomicInteger();
+        int threads = 4;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int thread = 0; thread < threads; thread++) {
+                int index = thread;
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < 1000; i++) {
+                        boolean state = i % 2 == 0;
+                        bitMap.cumulativeSet(index, state, () -> {
+                            // callbacks of a bitmap never run concurrently
+                            assertEquals(1, running.incrementAndGet());
+                            transitions.add(state);
+                            running.decrementAndGet();
+                        });
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get(10, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(threads * 1000, bitMap.getSequence());
+        assertFalse(bitMap.get());
+        // overall transitions are delivered in order, so they must alternate
+        assertFalse(transitions.isEmpty());
+        assertEquals(0, transitions.size() % 2);
+        for (int i = 0; i < transitions.size(); i++) {
+            assertEquals(i % 2 == 0, transitions.get(i));
+        }
+    }
+
+}
@@ -11,6 +11,7 @@ import org.mockito.Mock;
 import org.mockito.Spy;
 import org.mockito.internal.util.reflection.Whitebox;
 import org.powermock.api.mockito.PowerMockito;
+import org.powermock.core.classloader.annotations.PowerMockIgnore;
 import org.powermock.core.classloader.annotations.PrepareForTest;
 import org.powermock.modules.junit4.PowerMockRunner;
 import org.sputnikdev.bluetooth.Filter;
@@ -27,18 +28,27 @@ import org.sputnikdev.bluetooth.manager.GattCharacteristic;
 import org.sputnikdev.bluetooth.manager.GattService;
 import org.sputnikdev.bluetooth.manager.GenericBluetoothDeviceListener;
 import org.sputnikdev.bluetooth.manager.transport.BluetoothObjectFactory;
+import org.sputnikdev.bluetooth.manager.transport.BooleanNotification;
 import org.sputnikdev.bluetooth.manager.transport.Characteristic;
+import org.sputnikdev.bluetooth.manager.transport.CharacteristicAccessType;
 import org.sputnikdev.bluetooth.manager.transport.Device;
 import org.sputnikdev.bluetooth.manager.transport.Notification;
 import org.sputnikdev.bluetooth.manager.transport.Service;
+import org.sputnikdev.bluetooth.manager.transport.ShortNotification;
 
+import java.lang.management.ManagementFactory;
 import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.Date;
+import java.util.EnumSet;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Function;
 
 import static org.junit.Assert.assertEquals;
@@ -46,6 +56,7 @@ import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.anyBoolean;
 import static org.mockito.Matchers.anyList;
@@ -56,12 +67,15 @@ import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.inOrder;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.reset;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
 import static org.mockito.Mockito.when;
 
 @RunWith(PowerMockRunner.class)
+// allocation measurements need the platform MXBean interfaces, not their copies loaded by PowerMock
+@PowerMockIgnore("com.sun.management.*")
 public class DeviceGovernorImplTest {
 
     private static final int BLUETOOTH_CLASS = 0;
@@ -96,13 +110,13 @@ public class DeviceGovernorImplTest {
     private DeviceGovernorImpl governor = new DeviceGovernorImpl(bluetoothManager, URL);
 
     @Captor
-    private ArgumentCaptor<Notification<Short>> rssiCaptor;
+    private ArgumentCaptor<ShortNotification> rssiCaptor;
     @Captor
-    private ArgumentCaptor<Notification<Boolean>> blockedCaptor;
+    private ArgumentCaptor<BooleanNotification> blockedCaptor;
     @Captor
-    private ArgumentCaptor<Notification<Boolean>> connectedCaptor;
+    private ArgumentCaptor<BooleanNotification> connectedCaptor;
     @Captor
-    private ArgumentCaptor<Notification<Boolean>> servicesResolvedCaptor;
+    private ArgumentCaptor<BooleanNotification> servicesResolvedCaptor;
     @Captor
     private ArgumentCaptor<Notification<Map<String, byte[]>>> serviceDataCaptor;
     @Captor
@@ -113,10 +127,10 @@ public class DeviceGovernorImplTest {
         // not sure why, but adapter does not get injected properly, hence a workaround here:
         Whitebox.setInternalState(governor, "bluetoothObject", device);
 
-        doNothing().when(device).enableRSSINotifications(rssiCaptor.capture());
-        doNothing().when(device).enableBlockedNotifications(blockedCaptor.capture());
-        doNothing().when(device).enableConnectedNotifications(connectedCaptor.capture());
-        doNothing().when(device).enableServicesResolvedNotifications(servicesResolvedCaptor.capture());
+        doNothing().when(device).enableRSSINotificationsPrimitive(rssiCaptor.capture());
+        doNothing().when(device).enableBlockedNotificationsPrimitive(blockedCaptor.capture());
+        doNothing().when(device).enableConnectedNotificationsPrimitive(connectedCaptor.capture());
+        doNothing().when(device).enableServicesResolvedNotificationsPrimitive(servicesResolvedCaptor.capture());
         doNothing().when(device).enableServiceDataNotifications(serviceDataCaptor.capture());
         doNothing().when(device).enableManufacturerDataNotifications(manufacturerDataCaptor.capture());
 
@@ -124,6 +138,7 @@ public class DeviceGovernorImplTest {
         governor.addBluetoothSmartDeviceListener(bluetoothSmartDeviceListener);
 
         when(bluetoothManager.getFactory(any())).thenReturn(bluetoothObjectFactory);
+        when(bluetoothManager.getCanonicalURLs()).thenReturn(new CanonicalURLs());
         when(bluetoothObjectFactory.getDevice(URL)).thenReturn(device);
 
         when(device.getBluetoothClass()).thenReturn(BLUETOOTH_CLASS);
@@ -170,16 +185,47 @@ public class DeviceGovernorImplTest {
     public void testInit() {
         governor.init(device);
 
-        verify(device, times(1)).enableRSSINotifications(rssiCaptor.getValue());
-        verify(device, times(1)).enableBlockedNotifications(blockedCaptor.getValue());
-        verify(device, times(1)).enableConnectedNotifications(connectedCaptor.getValue());
-        verify(device, times(1)).enableServicesResolvedNotifications(servicesResolvedCaptor.getValue());
+        verify(device, times(1)).enableRSSINotificationsPrimitive(rssiCaptor.getValue());
+        verify(device, times(1)).enableBlockedNotificationsPrimitive(blockedCaptor.getValue());
+        verify(device, times(1)).enableConnectedNotificationsPrimitive(connectedCaptor.getValue());
+        verify(device, times(1)).enableServicesResolvedNotificationsPrimitive(servicesResolvedCaptor.getValue());
         verify(device, times(1)).enableServiceDataNotifications(serviceDataCaptor.getValue());
         verify(device, times(1)).enableManufacturerDataNotifications(manufacturerDataCaptor.getValue());
+        verify(device, times(1)).getName();
+        verify(device, times(1)).getAlias();
+        verify(device, times(1)).getBluetoothClass();
+        verify(device, times(1)).isBleEnabled();
+        verify(device, times(1)).getTxPower();
 
         verifyNoMoreInteractions(device, genericDeviceListener, bluetoothSmartDeviceListener);
     }
 
+    @Test
+    public void testCachedAttributes() {
+        when(device.isBleEnabled()).thenReturn(true);
+        when(device.getTxPower()).thenReturn((short) -60);
+        governor.init(device);
+        reset(device);
+
+        assertEquals(NAME, governor.getName());
+        assertEquals(ALIAS, governor.getAlias());
+        assertEquals(ALIAS, governor.getDisplayName());
+        assertEquals(BLUETOOTH_CLASS, governor.getBluetoothClass());
+        assertTrue(governor.isBleEnabled());
+        assertEquals(-60, governor.getTxPower());
+        governor.toString();
+        verifyNoMoreInteractions(device);
+
+        governor.setAlias("new alias");
+        verify(device).setAlias("new alias");
+        assertEquals("new alias", governor.getAlias());
+
+        // attributes get reloaded once reset
+        governor.reset(device);
+        when(device.getName()).thenReturn("new name");
+        assertEquals("new name", governor.getName());
+    }
+
     @Test
     public void testUpdateBlocked() {
         governor.setBlockedControl(false);
@@ -347,7 +393,8 @@ public class DeviceGovernorImplTest {
         governor.update(device);
         verify(genericDeviceListener, times(0)).offline();
 
-        Whitebox.setInternalState(governor, "lastActivity", Date.from(Instant.now().minusSeconds(onlineTimeout)));
+        Whitebox.setInternalState(governor, "lastActivity",
+                Instant.now().minusSeconds(onlineTimeout).toEpochMilli());
         governor.setBlockedControl(true);
         when(device.isBlocked()).thenReturn(true);
 
@@ -508,10 +555,11 @@ public class DeviceGovernorImplTest {
         int onlineTimeout = 20;
         governor.setOnlineTimeout(onlineTimeout);
 
-        Whitebox.setInternalState(governor, "lastActivity", Date.from(Instant.now()));
+        Whitebox.setInternalState(governor, "lastActivity", System.currentTimeMillis());
         assertTrue(governor.isOnline());
 
-        Whitebox.setInternalState(governor, "lastActivity", Date.from(Instant.now().minusSeconds(onlineTimeout)));
+        Whitebox.setInternalState(governor, "lastActivity",
+                Instant.now().minusSeconds(onlineTimeout).toEpochMilli());
         assertFalse(governor.isOnline());
     }
 
@@ -634,9 +682,16 @@ public class DeviceGovernorImplTest {
 
     @Test
     public void testToString() {
-        when(device.getAlias()).thenReturn(ALIAS).thenReturn(null);
-        when(device.isBleEnabled()).thenReturn(true).thenReturn(false);
+        // attributes are not loaded yet
+        assertEquals("[Device] " + URL, governor.toString());
+
+        when(device.isBleEnabled()).thenReturn(true);
+        governor.init(device);
         assertEquals("[Device] " + URL + " [" + ALIAS + "] [BLE]", governor.toString());
+
+        when(device.getAlias()).thenReturn(null);
+        when(device.isBleEnabled()).thenReturn(false);
+        governor.init(device);
         assertEquals("[Device] " + URL + " [" + NAME + "]", governor.toString());
     }
 
@@ -805,6 +860,62 @@ public class DeviceGovernorImplTest {
         verify(listener, times(2)).rssiChanged(RSSI);
     }
 
+    @Test
+    public void testRSSIOverflow() {
+        // ingestion workers do not keep up with the readings
+        when(bluetoothManager.getRssiIngestion()).thenReturn(mock(RssiIngestion.class));
+
+        for (int i = 0; i < RssiRingBuffer.DEFAULT_CAPACITY; i++) {
+            governor.updateRSSI(RSSI);
+        }
+        verify(bluetoothManager, never()).updateRssiOverflown();
+
+        governor.updateRSSI(RSSI);
+        governor.updateRSSI(RSSI);
+        verify(bluetoothManager, times(2)).updateRssiOverflown();
+        assertEquals(2, governor.getRssiBuffer().getOverflows());
+    }
+
+    @Test(timeout = 5000)
+    public void testRSSIOrder() throws Exception {
+        governor.setRssiFilteringEnabled(false);
+        governor.setRssiReportingRate(0);
+        List<Short> notified = new CopyOnWriteArrayList<>();
+        CountDownLatch notifying = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        governor.addGenericBluetoothDeviceListener(new GenericBluetoothDeviceListener() {
+            @Override
+            public void online() { }
+
+            @Override
+            public void offline() { }
+
+            @Override
+            public void blocked(boolean blocked) { }
+
+            @Override
+            public void rssiChanged(short rssi) {
+                notified.add(rssi);
+                notifying.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException ignore) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+        Thread first = new Thread(() -> governor.updateRSSI((short) -70));
+        first.start();
+        assertTrue(notifying.await(1, TimeUnit.SECONDS));
+
+        // another notification thread leaves its reading to the draining thread instead of overtaking it
+        governor.updateRSSI((short) -60);
+        assertEquals(Collections.singletonList((short) -70), notified);
+        release.countDown();
+        first.join();
+        assertEquals(Arrays.asList((short) -70, (short) -60), notified);
+    }
+
     @Test
     public void testNotifyServicesResolved() {
         BluetoothSmartDeviceListener listener1 = mock(BluetoothSmartDeviceListener.class);
@@ -892,14 +1003,14 @@ public class DeviceGovernorImplTest {
 
     @Test
     public void testConnectionNotification() {
-        ArgumentCaptor<Notification> notificationCaptor = ArgumentCaptor.forClass(Notification.class);
+        ArgumentCaptor<BooleanNotification> notificationCaptor = ArgumentCaptor.forClass(BooleanNotification.class);
 
-        doNothing().when(device).enableConnectedNotifications(notificationCaptor.capture());
+        doNothing().when(device).enableConnectedNotificationsPrimitive(notificationCaptor.capture());
 
         // init method will enable notifications, if they are not enabled already
         governor.init(device);
 
-        verify(device, times(1)).enableConnectedNotifications(notificationCaptor.getValue());
+        verify(device, times(1)).enableConnectedNotificationsPrimitive(notificationCaptor.getValue());
 
         notificationCaptor.getValue().notify(Boolean.TRUE);
 
@@ -915,14 +1026,14 @@ public class DeviceGovernorImplTest {
 
     @Test
     public void testServicesResolvedNotification() {
-        ArgumentCaptor<Notification> notificationCaptor = ArgumentCaptor.forClass(Notification.class);
+        ArgumentCaptor<BooleanNotification> notificationCaptor = ArgumentCaptor.forClass(BooleanNotification.class);
 
-        doNothing().when(device).enableServicesResolvedNotifications(notificationCaptor.capture());
+        doNothing().when(device).enableServicesResolvedNotificationsPrimitive(notificationCaptor.capture());
 
         // init method will enable notifications, if they are not enabled already
         governor.init(device);
 
-        verify(device, times(1)).enableServicesResolvedNotifications(notificationCaptor.getValue());
+        verify(device, times(1)).enableServicesResolvedNotificationsPrimitive(notificationCaptor.getValue());
 
         List<GattService> tmp = governor.getResolvedServices();
 
@@ -950,16 +1061,86 @@ public class DeviceGovernorImplTest {
         verify(bluetoothManager, times(1)).resetDescendants(URL);
     }
 
+    @Test
+    public void testServicesResolvedNotificationGattCache() {
+        ArgumentCaptor<BooleanNotification> notificationCaptor = ArgumentCaptor.forClass(BooleanNotification.class);
+        doNothing().when(device).enableServicesResolvedNotificationsPrimitive(notificationCaptor.capture());
+        GattCache gattCache = mock(GattCache.class);
+        when(bluetoothManager.getGattCache()).thenReturn(gattCache);
+        List<Runnable> commands = new ArrayList<>();
+        when(bluetoothManager.getCommandLane(URL)).thenReturn(new CommandLane(URL, commands::add));
+        governor.init(device);
+        verify(gattCache).prefetch(URL);
+        Service service = device.getServices().get(0);
+
+        // unknown layout is read from the transport and cached
+        notificationCaptor.getValue().notify(Boolean.TRUE);
+        verify(governor, times(1)).notifyServicesResolved(any());
+        verify(gattCache, times(1)).put(eq(URL), any());
+        verify(service, times(1)).getCharacteristics();
+
+        // known layout is used if the device reports the same services, characteristics are not read
+        List<GattService> cached = Collections.singletonList(new GattService(SERVICE_1_URL, Collections.emptyList()));
+        when(gattCache.get(URL)).thenReturn(cached);
+        reset(service);
+        when(service.getURL()).thenReturn(SERVICE_1_URL);
+        notificationCaptor.getValue().notify(Boolean.TRUE);
+        verify(governor, times(1)).notifyServicesResolved(cached);
+        verify(service, never()).getCharacteristics();
+        verify(governor, times(2)).notifyServicesResolved(any());
+        verify(gattCache, times(1)).put(any(), any());
+        // and so it is served to callers until services get unresolved
+        assertEquals(cached, governor.getResolvedServices());
+
+        // the cached layout is reconciled with the transport in the background, the same layout is not notified
+        assertEquals(1, commands.size());
+        commands.remove(0).run();
+        verify(service).getCharacteristics();
+        verify(gattCache, times(2)).put(eq(URL), any());
+        verify(governor, times(2)).notifyServicesResolved(any());
+        assertEquals(cached, governor.getResolvedServices());
+
+        // a characteristic added by a firmware update is detected, the actual layout replaces the cached one
+        notificationCaptor.getValue().notify(Boolean.TRUE);
+        verify(governor, times(2)).notifyServicesResolved(cached);
+        Characteristic added = mock(Characteristic.class);
+        when(added.getURL()).thenReturn(SERVICE_1_URL.copyWithCharacteristic("00002a19-0000-1000-8000-00805f9b34fb"));
+        when(added.getFlags()).thenReturn(EnumSet.of(CharacteristicAccessType.READ));
+        when(service.getCharacteristics()).thenReturn(Collections.singletonList(added));
+        when(gattCache.put(eq(URL), any())).thenReturn(true);
+        commands.remove(0).run();
+        verify(governor, times(4)).notifyServicesResolved(any());
+        assertEquals(1, governor.getResolvedServices().get(0).getCharacteristics().size());
+        assertTrue(commands.isEmpty());
+
+        notificationCaptor.getValue().notify(Boolean.FALSE);
+        reset(service);
+        when(service.getURL()).thenReturn(SERVICE_1_URL);
+        when(service.getCharacteristics()).thenReturn(Collections.emptyList());
+        assertTrue(governor.getResolvedServices().get(0).getCharacteristics().isEmpty());
+        verify(service).getCharacteristics();
+
+        // stale layout is never reported
+        List<GattService> stale = Collections.singletonList(
+                new GattService(URL.copyWithService("0000180a-0000-1000-8000-00805f9b34fb"), Collections.emptyList()));
+        when(gattCache.get(URL)).thenReturn(stale);
+        notificationCaptor.getValue().notify(Boolean.TRUE);
+        verify(governor, never()).notifyServicesResolved(stale);
+        verify(governor, times(5)).notifyServicesResolved(any());
+        verify(gattCache, times(4)).put(any(), any());
+        assertTrue(commands.isEmpty());
+    }
+
     @Test
     public void testRSSINotification() {
-        ArgumentCaptor<Notification> notificationCaptor = ArgumentCaptor.forClass(Notification.class);
+        ArgumentCaptor<ShortNotification> notificationCaptor = ArgumentCaptor.forClass(ShortNotification.class);
 
-        doNothing().when(device).enableRSSINotifications(notificationCaptor.capture());
+        doNothing().when(device).enableRSSINotificationsPrimitive(notificationCaptor.capture());
 
         // init method will enable notifications, if they are not enabled already
         governor.init(device);
 
-        verify(device, times(1)).enableRSSINotifications(notificationCaptor.getValue());
+        verify(device, times(1)).enableRSSINotificationsPrimitive(notificationCaptor.getValue());
 
         notificationCaptor.getValue().notify(RSSI);
 
@@ -970,14 +1151,14 @@ public class DeviceGovernorImplTest {
 
     @Test
     public void testBlockedNotification() {
-        ArgumentCaptor<Notification> notificationCaptor = ArgumentCaptor.forClass(Notification.class);
+        ArgumentCaptor<BooleanNotification> notificationCaptor = ArgumentCaptor.forClass(BooleanNotification.class);
 
-        doNothing().when(device).enableBlockedNotifications(notificationCaptor.capture());
+        doNothing().when(device).enableBlockedNotificationsPrimitive(notificationCaptor.capture());
 
         // init method will enable notifications, if they are not enabled already
         governor.init(device);
 
-        verify(device, times(1)).enableBlockedNotifications(notificationCaptor.getValue());
+        verify(device, times(1)).enableBlockedNotificationsPrimitive(notificationCaptor.getValue());
 
         notificationCaptor.getValue().notify(true);
 
@@ -1106,9 +1287,113 @@ public class DeviceGovernorImplTest {
     }
 
 
+    @Test
+    public void testRssiNotificationAllocationFree() {
+        com.sun.management.ThreadMXBean threadBean = getAllocationMXBean();
+
+        BluetoothManagerImpl manager = new BluetoothManagerImpl();
+        try {
+            // RSSI readings are processed by the notification thread
+            DeviceGovernorImpl deviceGovernor = mockRssiListener(manager);
+            long threadId = Thread.currentThread().getId();
+            long allocated = Long.MAX_VALUE;
+            // the best of a few rounds, so that one-off allocations (e.g. JIT recompilation) do not count
+            for (int round = 0; round < 3; round++) {
+                long before = threadBean.getThreadAllocatedBytes(threadId);
+                notifyRSSI(deviceGovernor);
+                allocated = Math.min(allocated, threadBean.getThreadAllocatedBytes(threadId) - before);
+            }
+            // a few bytes can be reported by the measurement itself, but not per notification
+            assertTrue("Allocated bytes: " + allocated, allocated < 10000);
+            assertNotNull(deviceGovernor.getLastActivity());
+        } finally {
+            manager.dispose();
+        }
+    }
+
+    @Test
+    public void testRssiIngestionAllocationFree() throws Exception {
+        com.sun.management.ThreadMXBean threadBean = getAllocationMXBean();
+
+        BluetoothManagerImpl manager = new BluetoothManagerImpl();
+        manager.setRssiIngestionWorkers(1);
+        try {
+            // RSSI readings are buffered by the notification thread and processed by the ingestion worker
+            DeviceGovernorImpl deviceGovernor = mockRssiListener(manager);
+            awaitRssiIngestion(deviceGovernor);
+            long workerId = Thread.getAllStackTraces().keySet().stream()
+                    .filter(thread -> thread.getName().startsWith("rssi-ingestion-"))
+                    .findFirst().get().getId();
+            long threadId = Thread.currentThread().getId();
+            long allocated = Long.MAX_VALUE;
+            long workerAllocated = Long.MAX_VALUE;
+            for (int round = 0; round < 3; round++) {
+                long before = threadBean.getThreadAllocatedBytes(threadId);
+                long workerBefore = threadBean.getThreadAllocatedBytes(workerId);
+                notifyRSSI(deviceGovernor);
+                allocated = Math.min(allocated, threadBean.getThreadAllocatedBytes(threadId) - before);
+                awaitRssiIngestion(deviceGovernor);
+                workerAllocated = Math.min(workerAllocated,
+                        threadBean.getThreadAllocatedBytes(workerId) - workerBefore);
+            }
+            assertTrue("Allocated bytes: " + allocated, allocated < 10000);
+            assertTrue("Allocated bytes by worker: " + workerAllocated, workerAllocated < 10000);
+        } finally {
+            manager.dispose();
+        }
+    }
+
+
     private CharacteristicGovernor mockCharacteristicGovernor(URL url) {
         CharacteristicGovernor governor = mock(CharacteristicGovernor.class);
         when(governor.getURL()).thenReturn(url);
         return governor;
     }
+
+    private static com.sun.management.ThreadMXBean getAllocationMXBean() {
+        assumeTrue(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean threadBean =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        assumeTrue(threadBean.isThreadAllocatedMemorySupported() && threadBean.isThreadAllocatedMemoryEnabled());
+        return threadBean;
+    }
+
+    private static DeviceGovernorImpl mockRssiListener(BluetoothManagerImpl manager) {
+        DeviceGovernorImpl deviceGovernor = new DeviceGovernorImpl(manager, URL);
+        deviceGovernor.setRssiReportingRate(0);
+        deviceGovernor.addGenericBluetoothDeviceListener(new GenericBluetoothDeviceListener() {
+            @Override
+            public void online() { }
+
+            @Override
+            public void offline() { }
+
+            @Override
+            public void blocked(boolean blocked) { }
+
+            @Override
+            public void rssiChanged(short rssi) { }
+        });
+        // warming up
+        notifyRSSI(deviceGovernor);
+        return deviceGovernor;
+    }
+
+    private static void notifyRSSI(DeviceGovernorImpl deviceGovernor) {
+        // what an RSSI notification does
+        for (int i = 0; i < 100000; i++) {
+            deviceGovernor.updateRSSI((short) (-60 - i % 30));
+            deviceGovernor.updateLastChanged();
+        }
+    }
+
+    private static void awaitRssiIngestion(DeviceGovernorImpl deviceGovernor) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10000;
+        while (!deviceGovernor.getRssiBuffer().isEmpty() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        // the last batch might still be being processed
+        Thread.sleep(100);
+    }
+
 }
@@ -0,0 +1,128 @@
+package org.sputnikdev.bluetooth.manager.impl;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.sputnikdev.bluetooth.URL;
+import org.sputnikdev.bluetooth.manager.AdapterGovernor;
+import org.sputnikdev.bluetooth.manager.CharacteristicGovernor;
+import org.sputnikdev.bluetooth.manager.DeviceGovernor;
+import org.sputnikdev.bluetooth.manager.DiscoveredAdapter;
+import org.sputnikdev.bluetooth.manager.DiscoveredDevice;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class DiscoveryJournalTest {
+
+    private static final URL ADAPTER_URL = new URL("tinyb://11:22:33:44:55:66");
+    private static final URL DEVICE_URL = ADAPTER_URL.copyWithDevice("12:34:56:78:90:12");
+    private static final DiscoveredAdapter ADAPTER = new DiscoveredAdapter(ADAPTER_URL, "adapter", null);
+    private static final DiscoveredDevice DEVICE =
+            new DiscoveredDevice(DEVICE_URL, "device", "alias", (short) -70, 1024, true);
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testSaveLoad() throws Exception {
+        Path file = folder.getRoot().toPath().resolve("journal");
+        DiscoveryJournal journal = new DiscoveryJournal(file);
+        assertTrue(journal.load().getDevices().isEmpty());
+
+        AdapterGovernor adapterGovernor = mock(AdapterGovernor.class);
+        when(adapterGovernor.getURL()).thenReturn(ADAPTER_URL.copyWithProtocol(null));
+        when(adapterGovernor.getDiscoveringControl()).thenReturn(true);
+        DeviceGovernor deviceGovernor = mock(DeviceGovernor.class);
+        when(deviceGovernor.getURL()).thenReturn(DEVICE_URL.copyWithProtocol(null));
+        when(deviceGovernor.getConnectionControl()).thenReturn(true);
+        when(deviceGovernor.getBlockedControl()).thenReturn(true);
+        CharacteristicGovernor characteristicGovernor = mock(CharacteristicGovernor.class);
+
+        assertTrue(journal.save(Collections.singleton(ADAPTER), Collections.singleton(DEVICE),
+                Arrays.asList(adapterGovernor, deviceGovernor, characteristicGovernor), Collections.emptyMap()));
+        // nothing has changed
+        assertFalse(journal.save(Collections.singleton(ADAPTER), Collections.singleton(DEVICE),
+                Arrays.asList(deviceGovernor, adapterGovernor), Collections.emptyMap()));
+        // live governors take precedence over restored controls
+        assertFalse(journal.save(Collections.singleton(ADAPTER), Collections.singleton(DEVICE),
+                Arrays.asList(deviceGovernor, adapterGovernor),
+                Collections.singletonMap(DEVICE_URL.copyWithProtocol(null), 0)));
+
+        DiscoveryJournal.Snapshot snapshot = new DiscoveryJournal(file).load();
+        assertEquals(Collections.singletonList(ADAPTER), snapshot.getAdapters());
+        assertEquals("adapter", snapshot.getAdapters().get(0).getName());
+        assertNull(snapshot.getAdapters().get(0).getAlias());
+        assertEquals(1, snapshot.getDevices().size());
+        DiscoveredDevice device = snapshot.getDevices().get(0);
+        assertEquals(DEVICE_URL, device.getURL());
+        assertEquals("device", device.getName());
+        assertEquals("alias", device.getAlias());
+        assertEquals(-70, device.getRSSI());
+        assertEquals(1024, device.getBluetoothClass());
+        assertTrue(device.isBleEnabled());
+        assertEquals(2, snapshot.getControls().size());
+
+        DeviceGovernor restoredDevice = mock(DeviceGovernor.class);
+        DiscoveryJournal.applyControls(restoredDevice, snapshot.getControls().get(DEVICE_URL.copyWithProtocol(null)));
+        verify(restoredDevice).setConnectionControl(true);
+        verify(restoredDevice).setBlockedControl(true);
+        AdapterGovernor restoredAdapter = mock(AdapterGovernor.class);
+        DiscoveryJournal.applyControls(restoredAdapter,
+                snapshot.getControls().get(ADAPTER_URL.copyWithProtocol(null)));
+        verify(restoredAdapter).setPoweredControl(false);
+        verify(restoredAdapter).setDiscoveringControl(true);
+    }
+
+    @Test
+    public void testCorruptedJournal() throws Exception {
+        Path file = folder.getRoot().toPath().resolve("journal");
+        Files.write(file, new byte[] {1, 2, 3});
+        DiscoveryJournal.Snapshot snapshot = new DiscoveryJournal(file).load();
+        assertTrue(snapshot.getAdapters().isEmpty());
+        assertTrue(snapshot.getDevices().isEmpty());
+        assertTrue(snapshot.getControls().isEmpty());
+    }
+
+    @Test
+    public void testWarmStart() throws Exception {
+        Path file = folder.getRoot().toPath().resolve("journal");
+        BluetoothManagerImpl manager = new BluetoothManagerImpl();
+        manager.enableCombinedDevices(false);
+        manager.setJournalFile(file);
+        manager.start(false);
+        manager.getDeviceGovernor(DEVICE_URL).setConnectionControl(true);
+        manager.dispose();
+        assertTrue(Files.exists(file));
+
+        // a new manager does not create governors on start, but keeps their controls in the journal
+        manager = new BluetoothManagerImpl();
+        manager.enableCombinedDevices(false);
+        manager.setJournalFile(file);
+        manager.start(false);
+        assertFalse(manager.getRegisteredGovernors().contains(DEVICE_URL.copyWithProtocol(null)));
+        manager.dispose();
+
+        // controls are restored when the governor is requested
+        manager = new BluetoothManagerImpl();
+        manager.enableCombinedDevices(false);
+        manager.setJournalFile(file);
+        manager.start(false);
+        try {
+            assertTrue(manager.getDeviceGovernor(DEVICE_URL).getConnectionControl());
+        } finally {
+            manager.dispose();
+        }
+    }
+
+}
@@ -0,0 +1,128 @@
+package org.sputnikdev.bluetooth.manager.impl;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.sputnikdev.bluetooth.URL;
+import org.sputnikdev.bluetooth.manager.GattCharacteristic;
+import org.sputnikdev.bluetooth.manager.GattService;
+import org.sputnikdev.bluetooth.manager.transport.CharacteristicAccessType;
+
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class GattCacheTest {
+
+    private static final URL DEVICE = new URL("/11:22:33:44:55:66/12:34:56:78:90:12");
+    private static final URL OTHER_ADAPTER_DEVICE = new URL("/66:55:44:33:22:11/12:34:56:78:90:12");
+    private static final String SERVICE = "0000180f-0000-1000-8000-00805f9b34fb";
+    private static final String CHARACTERISTIC = "00002a19-0000-1000-8000-00805f9b34fb";
+    private static final String CUSTOM_CHARACTERISTIC = "custom-characteristic";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testPutGet() throws Exception {
+        GattCache cache = new GattCache(folder.getRoot().toPath(), Runnable::run);
+        assertNull(cache.get(DEVICE));
+
+        assertTrue(cache.put(DEVICE, getLayout(CharacteristicAccessType.READ, CharacteristicAccessType.NOTIFY)));
+        assertTrue(Files.exists(folder.getRoot().toPath().resolve("123456789012.gatt")));
+
+        // a new instance simulates restart
+        cache = new GattCache(folder.getRoot().toPath(), Runnable::run);
+        List<GattService> services = cache.get(DEVICE);
+        assertLayout(DEVICE, services, EnumSet.of(CharacteristicAccessType.READ, CharacteristicAccessType.NOTIFY));
+
+        // layouts are shared between adapters
+        assertLayout(OTHER_ADAPTER_DEVICE, cache.get(OTHER_ADAPTER_DEVICE),
+                EnumSet.of(CharacteristicAccessType.READ, CharacteristicAccessType.NOTIFY));
+    }
+
+    @Test
+    public void testChangeDetection() throws Exception {
+        GattCache cache = new GattCache(folder.getRoot().toPath(), Runnable::run);
+        assertTrue(cache.put(DEVICE, getLayout(CharacteristicAccessType.READ)));
+        assertFalse(cache.put(DEVICE, getLayout(CharacteristicAccessType.READ)));
+        GattCache restarted = new GattCache(folder.getRoot().toPath(), Runnable::run);
+        restarted.prefetch(DEVICE);
+        assertFalse(restarted.put(DEVICE, getLayout(CharacteristicAccessType.READ)));
+
+        assertTrue(cache.put(DEVICE, getLayout(CharacteristicAccessType.WRITE)));
+        assertLayout(DEVICE, new GattCache(folder.getRoot().toPath(), Runnable::run).get(DEVICE),
+                EnumSet.of(CharacteristicAccessType.WRITE));
+    }
+
+    @Test
+    public void testInvalidate() throws Exception {
+        GattCache cache = new GattCache(folder.getRoot().toPath(), Runnable::run);
+        cache.put(DEVICE, getLayout(CharacteristicAccessType.READ));
+        cache.invalidate(DEVICE);
+        assertNull(cache.get(DEVICE));
+        assertNull(new GattCache(folder.getRoot().toPath(), Runnable::run).get(DEVICE));
+        assertTrue(cache.put(DEVICE, getLayout(CharacteristicAccessType.READ)));
+    }
+
+    @Test
+    public void testCorruptedFile() throws Exception {
+        Files.write(folder.getRoot().toPath().resolve("123456789012.gatt"), new byte[] {1, 2, 3});
+        GattCache cache = new GattCache(folder.getRoot().toPath(), Runnable::run);
+        assertNull(cache.get(DEVICE));
+        assertTrue(cache.put(DEVICE, getLayout(CharacteristicAccessType.READ)));
+    }
+
+    @Test
+    public void testBackgroundIO() throws Exception {
+        List<Runnable> tasks = new ArrayList<>();
+        GattCache cache = new GattCache(folder.getRoot().toPath(), tasks::add);
+        assertTrue(cache.put(DEVICE, getLayout(CharacteristicAccessType.READ)));
+        // the layout is served from memory straight away, but it is written later
+        assertLayout(DEVICE, cache.get(DEVICE), EnumSet.of(CharacteristicAccessType.READ));
+        assertFalse(Files.exists(folder.getRoot().toPath().resolve("123456789012.gatt")));
+        assertTrue(cache.put(DEVICE, getLayout(CharacteristicAccessType.WRITE)));
+        assertEquals(2, tasks.size());
+        // the latest layout is written by any of the pending writes
+        tasks.remove(0).run();
+        tasks.clear();
+
+        cache = new GattCache(folder.getRoot().toPath(), tasks::add);
+        // the layout is loaded in background
+        assertNull(cache.get(DEVICE));
+        assertEquals(1, tasks.size());
+        tasks.remove(0).run();
+        assertLayout(DEVICE, cache.get(DEVICE), EnumSet.of(CharacteristicAccessType.WRITE));
+        assertTrue(tasks.isEmpty());
+    }
+
+    private static List<GattService> getLayout(CharacteristicAccessType... flags) {
+        URL serviceURL = DEVICE.copyWithService(SERVICE);
+        return Collections.singletonList(new GattService(serviceURL, Arrays.asList(
+                new GattCharacteristic(serviceURL.copyWithCharacteristic(CHARACTERISTIC),
+                        EnumSet.copyOf(Arrays.asList(flags))),
+                new GattCharacteristic(serviceURL.copyWithCharacteristic(CUSTOM_CHARACTERISTIC),
+                        EnumSet.of(CharacteristicAccessType.READ)))));
+    }
+
+    private static void assertLayout(URL device, List<GattService> services, EnumSet<CharacteristicAccessType> flags) {
+        assertEquals(1, services.size());
+        GattService service = services.get(0);
+        assertEquals(device.copyWithService(SERVICE), service.getURL());
+        assertEquals(2, service.getCharacteristics().size());
+        GattCharacteristic characteristic = service.getCharacteristics().get(0);
+        assertEquals(device.copyWith(SERVICE, CHARACTERISTIC), characteristic.getURL());
+        assertEquals(flags, characteristic.getFlags());
+        assertEquals(device.copyWith(SERVICE, CUSTOM_CHARACTERISTIC),
+                service.getCharacteristics().get(1).getURL());
+    }
+
+}
@@ -0,0 +1,144 @@
+package org.sputnikdev.bluetooth.manager.impl;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class GovernorTimingWheelTest {
+
+    private final AtomicLong clock = new AtomicLong();
+    private GovernorTimingWheel wheel;
+
+    @Before
+    public void setUp() {
+        // direct executor, 100ms ticks, 8 buckets (a revolution is 800ms)
+        wheel = new GovernorTimingWheel(Runnable::run, 100, TimeUnit.MILLISECONDS, 8, clock::get);
+    }
+
+    @Test
+    public void testSchedule() {
+        AtomicInteger counter = new AtomicInteger();
+        wheel.schedule(counter::incrementAndGet, 300, 1000, TimeUnit.MILLISECONDS);
+
+        advance(200);
+        assertEquals(0, counter.get());
+        advance(100);
+        assertEquals(1, counter.get());
+
+        // next execution is 1000ms after the previous one, which is more than one revolution of the wheel
+        advance(900);
+        assertEquals(1, counter.get());
+        advance(100);
+        assertEquals(2, counter.get());
+        advance(1000);
+        assertEquals(3, counter.get());
+    }
+
+    @Test
+    public void testCancel() {
+        AtomicInteger counter = new AtomicInteger();
+        Future<?> future = wheel.schedule(counter::incrementAndGet, 100, 100, TimeUnit.MILLISECONDS);
+        advance(100);
+        assertEquals(1, counter.get());
+
+        assertTrue(future.cancel(false));
+        assertFalse(future.cancel(false));
+        assertTrue(future.isCancelled());
+        assertTrue(future.isDone());
+
+        advance(1000);
+        assertEquals(1, counter.get());
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    public void testReschedule() {
+        AtomicInteger counter = new AtomicInteger();
+        GovernorTimingWheel.Timeout timeout = wheel.schedule(counter::incrementAndGet, 500, 500,
+                TimeUnit.MILLISECONDS);
+        advance(100);
+        timeout.reschedule(100, TimeUnit.MILLISECONDS);
+        advance(100);
+        assertEquals(1, counter.get());
+        advance(400);
+        assertEquals(1, counter.get());
+        advance(100);
+        assertEquals(2, counter.get());
+    }
+
+    @Test
+    public void testScheduleSpread() {
+        AtomicInteger[] counters = new AtomicInteger[10];
+        for (int i = 0; i < counters.length; i++) {
+            counters[i] = new AtomicInteger();
+            wheel.scheduleSpread(counters[i]::incrementAndGet, 1000, TimeUnit.MILLISECONDS);
+        }
+        // tasks registered at the same moment must not fire all together
+        int fired = 0;
+        for (int i = 0; i < 10; i++) {
+            advance(100);
+            int firedNow = 0;
+            for (AtomicInteger counter : counters) {
+                firedNow += counter.get();
+            }
+            assertTrue(firedNow - fired <= 2);
+            fired = firedNow;
+        }
+        assertEquals(counters.length, fired);
+    }
+
+    @Test
+    public void testRejectedTask() {
+        AtomicInteger counter = new AtomicInteger();
+        AtomicBoolean rejecting = new AtomicBoolean(true);
+        Executor executor = task -> {
+            if (rejecting.get()) {
+                throw new RejectedExecutionException("rejected");
+            }
+            task.run();
+        };
+        Future<?> future = wheel.schedule(counter::incrementAndGet, executor, 100, 1000, TimeUnit.MILLISECONDS);
+        advance(100);
+        assertEquals(0, counter.get());
+        // a rejected task is retried on the next tick rather than dropped
+        rejecting.set(false);
+        advance(100);
+        assertEquals(1, counter.get());
+        assertFalse(future.isCancelled());
+
+        // once the wheel is stopped, expired tasks get cancelled
+        wheel.stop();
+        advance(1000);
+        assertEquals(1, counter.get());
+        assertTrue(future.isCancelled());
+    }
+
+    @Test
+    public void testTaskErrorDoesNotCancel() {
+        AtomicInteger counter = new AtomicInteger();
+        wheel.schedule(() -> {
+            counter.incrementAndGet();
+            throw new IllegalStateException("error");
+        }, 100, 100, TimeUnit.MILLISECONDS);
+        advance(100);
+        advance(100);
+        assertEquals(2, counter.get());
+    }
+
+    private void advance(long millis) {
+        clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(millis));
+        wheel.tick();
+    }
+
+}
@@ -0,0 +1,98 @@
+package org.sputnikdev.bluetooth.manager.impl;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.sputnikdev.bluetooth.URL;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class GovernorTreeIndexTest {
+
+    private static final int ADAPTERS = 4;
+    private static final int DEVICES = 250;
+    private static final int CHARACTERISTICS = 9;
+
+    private final GovernorTreeIndex index = new GovernorTreeIndex(new CanonicalURLs());
+    private final List<URL> urls = new ArrayList<>();
+
+    @Before
+    public void setUp() {
+        // 4 adapters, 1000 devices, 9000 characteristics: 10004 governors in total
+        for (int adapter = 0; adapter < ADAPTERS; adapter++) {
+            URL adapterURL = new URL(String.format("/00:00:00:00:00:%02X", adapter));
+            urls.add(adapterURL);
+            for (int device = 0; device < DEVICES; device++) {
+                URL deviceURL = adapterURL.copyWithDevice(String.format("11:22:33:44:%02X:%02X",
+                        device >> 8, device & 0xFF));
+                urls.add(deviceURL);
+                for (int characteristic = 0; characteristic < CHARACTERISTICS; characteristic++) {
+                    urls.add(deviceURL.copyWith("0000180" + (characteristic % 3) + "-0000-1000-8000-00805f9b34fb",
+                            "00002a1" + characteristic + "-0000-1000-8000-00805f9b34fb"));
+                }
+            }
+        }
+        urls.forEach(index::add);
+    }
+
+    @Test
+    public void testGetDescendants() {
+        assertEquals(urls.size(), index.size());
+
+        URL adapter = urls.get(0);
+        URL device = urls.get(1);
+        URL service = urls.get(2).getServiceURL();
+        URL characteristic = urls.get(2);
+        for (URL parent : new URL[] {new URL(), new URL().copyWithProtocol("tinyb"), adapter, adapter.copyWithProtocol("tinyb"),
+            device, service, characteristic}) {
+            assertDescendants(parent);
+        }
+
+        // parents go before their children
+        List<URL> descendants = index.getDescendants(adapter);
+        assertTrue(descendants.indexOf(device) < descendants.indexOf(characteristic));
+    }
+
+    @Test
+    public void testRemove() {
+        URL device = urls.get(1);
+        List<URL> characteristics = index.getDescendants(device);
+        assertEquals(CHARACTERISTICS, characteristics.size());
+
+        index.remove(device);
+        urls.remove(device);
+        // descendants of a removed node are still reachable
+        assertEquals(CHARACTERISTICS, index.getDescendants(device).size());
+        assertDescendants(device.getAdapterURL());
+
+        characteristics.forEach(index::remove);
+        urls.removeAll(characteristics);
+        assertTrue(index.getDescendants(device).isEmpty());
+        assertTrue(index.getDescendants(characteristics.get(0).getServiceURL()).isEmpty());
+        assertDescendants(device.getAdapterURL());
+        assertEquals(urls.size(), index.size());
+
+        // removing unknown URLs is a no-op
+        index.remove(device);
+        index.remove(new URL("/00:00:00:00:00:FF/11:22:33:44:55:66"));
+        assertEquals(urls.size(), index.size());
+
+        index.clear();
+        assertEquals(0, index.size());
+    }
+
+    private void assertDescendants(URL parent) {
+        Set<URL> expected = urls.stream().filter(url -> url.isDescendant(parent.copyWithProtocol(null)))
+                .collect(Collectors.toSet());
+        List<URL> actual = index.getDescendants(parent);
+        assertEquals(expected.size(), actual.size());
+        assertEquals(expected, new HashSet<>(actual));
+    }
+
+}
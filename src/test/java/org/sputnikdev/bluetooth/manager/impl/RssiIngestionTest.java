@@ -0,0 +1,124 @@
+package org.sputnikdev.bluetooth.manager.impl;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.powermock.modules.junit4.PowerMockRunner;
+import org.powermock.reflect.Whitebox;
+import org.sputnikdev.bluetooth.Filter;
+import org.sputnikdev.bluetooth.URL;
+import org.sputnikdev.bluetooth.manager.GenericBluetoothDeviceListener;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.anyShort;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(PowerMockRunner.class)
+public class RssiIngestionTest {
+
+    private static final int DEVICES = 100;
+    private static final int THREADS = 4;
+    private static final int SAMPLES = 15;
+
+    @Mock
+    private BluetoothManagerImpl bluetoothManager;
+
+    private RssiIngestion ingestion;
+
+    @Before
+    public void setUp() {
+        ingestion = new RssiIngestion(2);
+        when(bluetoothManager.getRssiIngestion()).thenReturn(ingestion);
+    }
+
+    @After
+    public void tearDown() {
+        ingestion.dispose();
+    }
+
+    @Test
+    public void testEverySampleProcessed() throws Exception {
+        List<DeviceGovernorImpl> governors = new ArrayList<>();
+        List<AtomicInteger> processed = new ArrayList<>();
+        List<GenericBluetoothDeviceListener> listeners = new ArrayList<>();
+        for (int i = 0; i < DEVICES; i++) {
+            DeviceGovernorImpl governor = new DeviceGovernorImpl(bluetoothManager,
+                    new URL(String.format("/11:22:33:44:55:66/00:00:00:00:00:%02X", i)));
+            AtomicInteger counter = new AtomicInteger();
+            Whitebox.setInternalState(governor, "rssiFilter", new CountingFilter(counter));
+            governor.setRssiReportingRate(0);
+            GenericBluetoothDeviceListener listener = mock(GenericBluetoothDeviceListener.class);
+            governor.addGenericBluetoothDeviceListener(listener);
+            governors.add(governor);
+            processed.add(counter);
+            listeners.add(listener);
+        }
+
+        // fewer samples per device than the buffer capacity, so that nothing can be overwritten
+        assertTrue(THREADS * SAMPLES < RssiRingBuffer.DEFAULT_CAPACITY);
+        ExecutorService notifications = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int thread = 0; thread < THREADS; thread++) {
+                futures.add(notifications.submit(() -> {
+                    for (int sample = 0; sample < SAMPLES; sample++) {
+                        governors.forEach(governor -> governor.updateRSSI((short) -60));
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get(10, TimeUnit.SECONDS);
+            }
+        } finally {
+            notifications.shutdownNow();
+        }
+
+        long deadline = System.currentTimeMillis() + 10000;
+        while (processed.stream().mapToInt(AtomicInteger::get).sum() < DEVICES * THREADS * SAMPLES
+                && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        for (int i = 0; i < DEVICES; i++) {
+            assertEquals(THREADS * SAMPLES, processed.get(i).get());
+            assertEquals(0, governors.get(i).getRssiBuffer().getOverflows());
+            verify(listeners.get(i), atLeastOnce()).rssiChanged(anyShort());
+        }
+    }
+
+    private static class CountingFilter implements Filter<Short> {
+
+        private final AtomicInteger counter;
+        private Short current;
+
+        CountingFilter(AtomicInteger counter) {
+            this.counter = counter;
+        }
+
+        @Override
+        public Short current() {
+            return current;
+        }
+
+        @Override
+        public Short next(Short next) {
+            counter.incrementAndGet();
+            current = next;
+            return next;
+        }
+    }
+
+}
@@ -0,0 +1,62 @@
+package org.sputnikdev.bluetooth.manager.impl;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class RssiRingBufferTest {
+
+    private final RssiRingBuffer buffer = new RssiRingBuffer(4);
+    private final short[] values = new short[3];
+    private final long[] timestamps = new long[3];
+
+    @Test
+    public void testAppendDrain() {
+        assertTrue(buffer.isEmpty());
+        assertEquals(0, buffer.drainTo(values, timestamps));
+
+        for (int i = 1; i <= 4; i++) {
+            buffer.append((short) -i, i);
+        }
+        assertEquals(4, buffer.size());
+
+        // batches are limited by the destination size
+        assertEquals(3, buffer.drainTo(values, timestamps));
+        assertEquals(-1, values[0]);
+        assertEquals(-3, values[2]);
+        assertEquals(3, timestamps[2]);
+
+        // wrapping around
+        buffer.append((short) -5, 5);
+        assertEquals(2, buffer.drainTo(values, timestamps));
+        assertEquals(-4, values[0]);
+        assertEquals(-5, values[1]);
+        assertTrue(buffer.isEmpty());
+        assertEquals(0, buffer.getOverflows());
+    }
+
+    @Test
+    public void testOverflow() {
+        for (int i = 1; i <= 6; i++) {
+            buffer.append((short) -i, i);
+        }
+        assertEquals(4, buffer.size());
+        assertEquals(2, buffer.getOverflows());
+
+        // the oldest samples are overwritten
+        assertEquals(3, buffer.drainTo(values, timestamps));
+        assertEquals(-3, values[0]);
+        assertEquals(3, timestamps[0]);
+    }
+
+    @Test
+    public void testSchedule() {
+        assertTrue(buffer.schedule());
+        assertFalse(buffer.schedule());
+        buffer.unschedule();
+        assertTrue(buffer.schedule());
+    }
+
+}
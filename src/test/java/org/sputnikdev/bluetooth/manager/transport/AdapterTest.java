@@ -0,0 +1,114 @@
+package org.sputnikdev.bluetooth.manager.transport;
+
+import org.junit.Test;
+import org.sputnikdev.bluetooth.URL;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+public class AdapterTest {
+
+    private final TestAdapter adapter = new TestAdapter();
+
+    @Test
+    public void testBoxedNotifications() throws Exception {
+        List<Boolean> values = new ArrayList<>();
+        // implicitly typed lambdas are not ambiguous, the primitive variants have their own names
+        adapter.enablePoweredNotifications(value -> values.add(value));
+        adapter.enableDiscoveringNotifications(values::add);
+        adapter.powered.notify(null);
+        adapter.discovering.notify(true);
+        assertEquals(2, values.size());
+    }
+
+    @Test
+    public void testPrimitiveNotifications() throws Exception {
+        List<Boolean> values = new ArrayList<>();
+        adapter.enablePoweredNotificationsPrimitive(values::add);
+        adapter.enableDiscoveringNotificationsPrimitive(value -> values.add(value));
+
+        adapter.powered.notify(true);
+        // null values of transports are skipped rather than unboxed
+        adapter.powered.notify(null);
+        adapter.discovering.notify(null);
+        adapter.discovering.notify(false);
+        assertEquals(2, values.size());
+        assertEquals(true, values.get(0));
+        assertEquals(false, values.get(1));
+    }
+
+    private static class TestAdapter implements Adapter {
+
+        private Notification<Boolean> powered;
+        private Notification<Boolean> discovering;
+
+        @Override
+        public URL getURL() {
+            return new URL("/11:22:33:44:55:66");
+        }
+
+        @Override
+        public void dispose() { }
+
+        @Override
+        public String getName() {
+            return null;
+        }
+
+        @Override
+        public String getAlias() {
+            return null;
+        }
+
+        @Override
+        public void setAlias(String s) { }
+
+        @Override
+        public boolean isDiscovering() {
+            return false;
+        }
+
+        @Override
+        public void enableDiscoveringNotifications(Notification<Boolean> notification) {
+            discovering = notification;
+        }
+
+        @Override
+        public void disableDiscoveringNotifications() { }
+
+        @Override
+        public boolean startDiscovery() {
+            return false;
+        }
+
+        @Override
+        public boolean stopDiscovery() {
+            return false;
+        }
+
+        @Override
+        public boolean isPowered() {
+            return false;
+        }
+
+        @Override
+        public void setPowered(boolean b) { }
+
+        @Override
+        public void enablePoweredNotifications(Notification<Boolean> notification) {
+            powered = notification;
+        }
+
+        @Override
+        public void disablePoweredNotifications() { }
+
+        @Override
+        public List<Device> getDevices() {
+            return Collections.emptyList();
+        }
+    }
+
+}
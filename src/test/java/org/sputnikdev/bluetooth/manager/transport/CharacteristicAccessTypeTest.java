@@ -3,8 +3,12 @@ package org.sputnikdev.bluetooth.manager.transport;
 import org.junit.Test;
 
 import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 import static org.sputnikdev.bluetooth.manager.transport.CharacteristicAccessType.*;
 
@@ -55,4 +59,34 @@ public class CharacteristicAccessTypeTest {
         assertTrue(actual.contains(READ));
         assertTrue(actual.contains(WRITE));
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testParseAllCombinations() throws Exception {
+        for (int flags = 0; flags < 256; flags++) {
+            int bitField = flags;
+            Set<CharacteristicAccessType> expected = Stream.of(values())
+                    .filter(c -> (c.getBitField() & bitField) > 0)
+                    .collect(Collectors.toSet());
+            Set<CharacteristicAccessType> actual = parse(flags);
+            assertEquals(expected, actual);
+            assertEquals(flags, toBitField(actual));
+            // shared instances
+            assertSame(actual, parse(flags));
+        }
+        // only the least significant byte counts
+        assertSame(parse(0x12), parse(0x112));
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testParseImmutable() throws Exception {
+        parse(0b00010010).add(WRITE);
+    }
+
+    @Test
+    public void testFromBitFieldInvalid() throws Exception {
+        assertNull(fromBitField(0));
+        assertNull(fromBitField(0b00010010));
+        assertNull(fromBitField(0x100));
+        assertNull(fromBitField(-1));
+    }
+}